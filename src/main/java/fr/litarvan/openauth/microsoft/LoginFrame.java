@@ -66,12 +66,23 @@ public class LoginFrame extends JFrame
             }
         });
 
+        // Cancelled from outside, the page is of no use anymore
+        this.future.whenComplete((result, error) -> {
+            if (error != null) {
+                SwingUtilities.invokeLater(this::dispose);
+            }
+        });
+
         Platform.runLater(() -> this.init(url));
         return this.future;
     }
 
     protected void init(String url)
     {
+        if (this.future.isDone()) {
+            return;
+        }
+
         WebView webView = new WebView();
         JFXPanel content = (JFXPanel) this.getContentPane();
 
@@ -38,8 +38,11 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -147,13 +150,25 @@ public class MicrosoftAuthenticator {
      * @return A future resolved by the player Minecraft profile
      */
     public CompletableFuture<MicrosoftAuthResult> loginWithAsyncWebview() {
+        return loginWithAsyncWebview(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Logs in a player using a webview to display Microsoft login page. This function does not block the current thread.
+     * Cancelling the returned future closes the webview if it is still open.
+     *
+     * @param executor Runs the requests made once the player has logged in
+     * @return A future resolved by the player Minecraft profile, or by null if the player closed the webview
+     */
+    public CompletableFuture<MicrosoftAuthResult> loginWithAsyncWebview(Executor executor) {
         if(!System.getProperty("java.version").startsWith("1."))
             CookieHandler.setDefault(new CookieManager());
 
         String url = String.format("%s?%s", MICROSOFT_AUTHORIZATION_ENDPOINT, http.buildParams(getLoginParams()));
         LoginFrame frame = new LoginFrame();
 
-        return frame.start(url).thenApplyAsync(result -> {
+        CompletableFuture<String> page = frame.start(url);
+        CompletableFuture<MicrosoftAuthResult> login = page.thenApplyAsync(result -> {
             try {
                 if(result != null)
                     return loginWithTokens(extractTokens(result),true);
@@ -161,7 +176,14 @@ public class MicrosoftAuthenticator {
             } catch (MicrosoftAuthenticationException e) {
                 throw new CompletionException(e);
             }
+        }, executor);
+        login.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                page.cancel(false);
+            }
         });
+
+        return login;
     }
 
     /**
@@ -172,16 +194,7 @@ public class MicrosoftAuthenticator {
      * @throws MicrosoftAuthenticationException Thrown if one of the several HTTP requests failed at some point
      */
     public MicrosoftAuthResult loginWithRefreshToken(String refreshToken) throws MicrosoftAuthenticationException {
-        Map<String, String> params = getLoginParams();
-        params.put("refresh_token", refreshToken);
-        params.put("grant_type", "refresh_token");
-
-        MicrosoftRefreshResponse response = http.postFormGetJson(
-                MICROSOFT_TOKEN_ENDPOINT,
-                params, MicrosoftRefreshResponse.class
-        );
-
-        return loginWithTokens(new AuthTokens(response.getAccessToken(), response.getRefreshToken()),true);
+        return loginWithTokens(refreshTokens(refreshToken),true);
     }
 
     /**
@@ -211,22 +224,10 @@ public class MicrosoftAuthenticator {
 
         String userHash = xstsResponse.getDisplayClaims().getUsers()[0].getUserHash();
         MinecraftLoginResponse minecraftResponse = minecraftLogin(userHash, xstsResponse.getToken());
-        MinecraftStoreResponse storeResponse = http.getJson(
-                MINECRAFT_STORE_ENDPOINT,
-                minecraftResponse.getAccessToken(),
-                MinecraftStoreResponse.class
-        );
-
-        if (Arrays.stream(storeResponse.getItems()).noneMatch(item -> item.getName().equals(MINECRAFT_STORE_IDENTIFIER))) {
-            throw new MicrosoftAuthenticationException("Player didn't buy Minecraft Java Edition or did not migrate its account");
-        }
+        checkOwnership(minecraftStore(minecraftResponse.getAccessToken()));
         MinecraftProfile profile = null;
         if (retrieveProfile) {
-            profile = http.getJson(
-                    MINECRAFT_PROFILE_ENDPOINT,
-                    minecraftResponse.getAccessToken(),
-                    MinecraftProfile.class
-            );
+            profile = minecraftProfile(minecraftResponse.getAccessToken());
         }
 
         return new MicrosoftAuthResult(
@@ -252,6 +253,19 @@ public class MicrosoftAuthenticator {
         return new PreAuthData(ppft, urlPost);
     }
 
+    protected AuthTokens refreshTokens(String refreshToken) throws MicrosoftAuthenticationException {
+        Map<String, String> params = getLoginParams();
+        params.put("refresh_token", refreshToken);
+        params.put("grant_type", "refresh_token");
+
+        MicrosoftRefreshResponse response = http.postFormGetJson(
+                MICROSOFT_TOKEN_ENDPOINT,
+                params, MicrosoftRefreshResponse.class
+        );
+
+        return new AuthTokens(response.getAccessToken(), response.getRefreshToken());
+    }
+
     protected XboxLoginResponse xboxLiveLogin(String accessToken) throws MicrosoftAuthenticationException {
         XboxLiveLoginProperties properties = new XboxLiveLoginProperties("RPS", XBOX_LIVE_AUTH_HOST, accessToken);
         XboxLoginRequest<XboxLiveLoginProperties> request = new XboxLoginRequest<>(
@@ -275,6 +289,20 @@ public class MicrosoftAuthenticator {
         return http.postJson(MINECRAFT_AUTH_ENDPOINT, request, MinecraftLoginResponse.class);
     }
 
+    protected MinecraftStoreResponse minecraftStore(String minecraftAccessToken) throws MicrosoftAuthenticationException {
+        return http.getJson(MINECRAFT_STORE_ENDPOINT, minecraftAccessToken, MinecraftStoreResponse.class);
+    }
+
+    protected MinecraftProfile minecraftProfile(String minecraftAccessToken) throws MicrosoftAuthenticationException {
+        return http.getJson(MINECRAFT_PROFILE_ENDPOINT, minecraftAccessToken, MinecraftProfile.class);
+    }
+
+    protected void checkOwnership(MinecraftStoreResponse storeResponse) throws MicrosoftAuthenticationException {
+        if (Arrays.stream(storeResponse.getItems()).noneMatch(item -> item.getName().equals(MINECRAFT_STORE_IDENTIFIER))) {
+            throw new MicrosoftAuthenticationException("Player didn't buy Minecraft Java Edition or did not migrate its account");
+        }
+    }
+
 
     protected Map<String, String> getLoginParams() {
         Map<String, String> params = new HashMap<>();
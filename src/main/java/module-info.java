@@ -7,4 +7,6 @@ module com.breachinthecontainment.launcher {
     requires com.google.gson;
 
     exports org.breachinthecontainment.launcher_client;
+    // Gson reflects over the install manifest
+    opens org.breachinthecontainment.launcher_client to com.google.gson;
 }
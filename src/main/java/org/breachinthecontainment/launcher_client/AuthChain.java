@@ -0,0 +1,276 @@
+package org.breachinthecontainment.launcher_client;
+
+import fr.litarvan.openauth.microsoft.AuthTokens;
+import fr.litarvan.openauth.microsoft.MicrosoftAuthResult;
+import fr.litarvan.openauth.microsoft.MicrosoftAuthenticationException;
+import fr.litarvan.openauth.microsoft.MicrosoftAuthenticator;
+import fr.litarvan.openauth.microsoft.model.response.MinecraftLoginResponse;
+import fr.litarvan.openauth.microsoft.model.response.MinecraftProfile;
+import fr.litarvan.openauth.microsoft.model.response.MinecraftStoreResponse;
+import fr.litarvan.openauth.microsoft.model.response.XboxLoginResponse;
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The Xbox Live, XSTS and Minecraft sign-in chain of OpenAuth, run on the auth executor one hop
+ * at a time, except the entitlement and profile requests that only depend on the Minecraft login
+ * and run together. Every hop is bounded by a timeout, and a sign-in can be cancelled while hops
+ * are in flight: the requests are interrupted and the chain stops there.
+ * <p>
+ * Every sign-in also yields an {@link AuthSession} holding the token of each hop with its expiry,
+ * from which {@link #resume(AuthSession)} later redoes only the hops that have expired.
+ * <p>
+ * Not final so tests can answer the requests of OpenAuth's hop methods without a network.
+ */
+class AuthChain extends MicrosoftAuthenticator {
+
+    private final ExecutorService executor;
+    private final Duration hopTimeout;
+    private final LauncherLogger logger;
+    private volatile boolean cancelled;
+    // The requests in flight, more than one while independent hops run at once
+    private final Set<Future<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile AuthSession session;
+
+    /**
+     * A request of the chain.
+     */
+    private interface Hop<T> {
+        T call() throws MicrosoftAuthenticationException;
+    }
+
+    /**
+     * @param executor Runs the requests, one task per hop.
+     * @param hopTimeout How long a single request may take.
+     * @param logger Receives the timing of every hop, may be null.
+     */
+    AuthChain(ExecutorService executor, Duration hopTimeout, LauncherLogger logger) {
+        this.executor = executor;
+        this.hopTimeout = hopTimeout;
+        this.logger = logger;
+    }
+
+    @Override
+    public MicrosoftAuthResult loginWithRefreshToken(String refreshToken) throws MicrosoftAuthenticationException {
+        return resume(AuthSession.ofRefreshToken(refreshToken)).toResult();
+    }
+
+    @Override
+    public MicrosoftAuthResult loginWithTokens(AuthTokens tokens, boolean retrieveProfile) throws MicrosoftAuthenticationException {
+        AuthSession session = AuthSession.ofRefreshToken(tokens.getRefreshToken())
+                .withXbox(xboxToken(hop("Xbox Live", () -> xboxLiveLogin(tokens.getAccessToken()))));
+        return minecraft(xsts(session), retrieveProfile).toResult();
+    }
+
+    /**
+     * Signs in again from a saved session, redoing only the hops after the last token that is still
+     * valid: nothing while the Minecraft token is, the Minecraft login while the XSTS token is, XSTS
+     * and Minecraft while the Xbox Live token is, and the whole chain from the refresh token otherwise.
+     *
+     * @param saved The saved session.
+     * @return The session with every token valid, the saved one itself if no hop had to be redone.
+     * @throws MicrosoftAuthenticationException If a hop failed, timed out or the chain was cancelled.
+     */
+    AuthSession resume(AuthSession saved) throws MicrosoftAuthenticationException {
+        return resume(saved, Instant.now());
+    }
+
+    /**
+     * Same as {@link #resume(AuthSession)}, but redoes the hops whose token will no longer be valid
+     * at the given time, so tokens can be refreshed before they expire.
+     *
+     * @param saved The saved session.
+     * @param now The time the tokens have to be valid at.
+     * @return The session with every token valid at that time, the saved one itself if no hop had to be redone.
+     * @throws MicrosoftAuthenticationException If a hop failed, timed out or the chain was cancelled.
+     */
+    AuthSession resume(AuthSession saved, Instant now) throws MicrosoftAuthenticationException {
+        if (saved.isValid(now)) {
+            log("minecraft");
+            session = saved;
+            return saved;
+        }
+        AuthSession resumed = saved;
+        if (saved.xsts() != null && saved.xsts().isValid(now)) {
+            log("xsts");
+        } else {
+            if (saved.xbox() != null && saved.xbox().isValid(now)) {
+                log("xbox");
+            } else {
+                AuthTokens tokens = hop("Microsoft token", () -> refreshTokens(saved.refreshToken()));
+                // Microsoft hands out a new refresh token with every refresh, the old one may stop working
+                if (tokens.getRefreshToken() != null) {
+                    resumed = resumed.withRefreshToken(tokens.getRefreshToken());
+                }
+                resumed = resumed.withXbox(xboxToken(hop("Xbox Live", () -> xboxLiveLogin(tokens.getAccessToken()))));
+            }
+            resumed = xsts(resumed);
+        }
+        return minecraft(resumed, true);
+    }
+
+    /**
+     * @return The session built by the last sign-in of this chain, null if none succeeded.
+     */
+    AuthSession session() {
+        return session;
+    }
+
+    private AuthSession xsts(AuthSession session) throws MicrosoftAuthenticationException {
+        String xboxToken = session.xbox().value();
+        return session.withXsts(xboxToken(hop("XSTS", () -> xstsLogin(xboxToken))));
+    }
+
+    /**
+     * Logs in to Minecraft with the XSTS token of the session, then checks the game is owned and
+     * fetches the profile at the same time, as both only need the Minecraft token. If the game is
+     * not owned or the check fails, the profile request is cancelled.
+     */
+    private AuthSession minecraft(AuthSession session, boolean retrieveProfile) throws MicrosoftAuthenticationException {
+        AuthSession.Token xsts = session.xsts();
+        long issued = System.currentTimeMillis();
+        MinecraftLoginResponse minecraft = hop("Minecraft", () -> minecraftLogin(xsts.userHash(), xsts.value()));
+
+        long deadline = System.nanoTime() + hopTimeout.toNanos();
+        Future<MinecraftStoreResponse> store = start("Entitlements", () -> minecraftStore(minecraft.getAccessToken()));
+        Future<MinecraftProfile> profileRequest = null;
+        MinecraftProfile profile = null;
+        try {
+            if (retrieveProfile) {
+                profileRequest = start("Profile", () -> minecraftProfile(minecraft.getAccessToken()));
+            }
+            checkOwnership(await("Entitlements", store, deadline));
+            if (profileRequest != null) {
+                profile = await("Profile", profileRequest, deadline);
+            }
+        } finally {
+            // Only still running if the entitlement check failed
+            if (profileRequest != null && !profileRequest.isDone()) {
+                profileRequest.cancel(true);
+                inFlight.remove(profileRequest);
+            }
+            store.cancel(true);
+            inFlight.remove(store);
+        }
+
+        // Counted from before the request, so the token is never believed to live longer than it does
+        AuthSession.Token token = new AuthSession.Token(minecraft.getAccessToken(), null,
+                issued + minecraft.getExpiresIn() * 1000);
+        AuthSession signedIn = session.withMinecraft(token, minecraft.getUsername(), profile);
+        this.session = signedIn;
+        return signedIn;
+    }
+
+    /**
+     * @return The token of an Xbox Live or XSTS response with its user hash and expiry. A token whose
+     *         expiry cannot be read is treated as already expired, so it is not reused.
+     */
+    private static AuthSession.Token xboxToken(XboxLoginResponse response) {
+        long expiresAt;
+        try {
+            expiresAt = Instant.parse(response.getNotAfter()).toEpochMilli();
+        } catch (DateTimeParseException | NullPointerException e) {
+            expiresAt = 0;
+        }
+        return new AuthSession.Token(response.getToken(), response.getDisplayClaims().getUsers()[0].getUserHash(), expiresAt);
+    }
+
+    private void log(String reusedToken) {
+        if (logger != null) {
+            logger.event(LauncherLogger.Level.DEBUG, Category.AUTH, "Resuming saved session.", "reused", reusedToken);
+        }
+    }
+
+    /**
+     * Stops the chain: the hops in flight are interrupted and no further hop starts.
+     */
+    void cancel() {
+        cancelled = true;
+        for (Future<?> hop : inFlight) {
+            hop.cancel(true);
+        }
+    }
+
+    /**
+     * Runs a request on the executor and waits for it at most the hop timeout.
+     *
+     * @param name The name of the hop, for messages.
+     * @param request The request.
+     * @return The response.
+     * @throws MicrosoftAuthenticationException If the request failed, timed out or the chain was cancelled.
+     */
+    private <T> T hop(String name, Hop<T> request) throws MicrosoftAuthenticationException {
+        return await(name, start(name, request), System.nanoTime() + hopTimeout.toNanos());
+    }
+
+    /**
+     * Submits a request to the executor without waiting for it, so independent hops can run at once.
+     * The hop's duration is logged when the request succeeds.
+     *
+     * @param name The name of the hop, for messages.
+     * @param request The request.
+     * @return The request in flight, to be passed to {@link #await(String, Future, long)}.
+     * @throws MicrosoftAuthenticationException If the chain was cancelled.
+     */
+    private <T> Future<T> start(String name, Hop<T> request) throws MicrosoftAuthenticationException {
+        if (cancelled) {
+            throw new MicrosoftAuthenticationException("Sign-in cancelled before " + name);
+        }
+        long start = System.nanoTime();
+        Future<T> future = executor.submit(() -> {
+            T response = request.call();
+            if (logger != null) {
+                logger.event(LauncherLogger.Level.DEBUG, Category.AUTH, "Auth hop finished.", "hop", name,
+                        "durationMs", (System.nanoTime() - start) / 1_000_000);
+            }
+            return response;
+        });
+        inFlight.add(future);
+        // A cancel that came in while the hop was being submitted must still reach it
+        if (cancelled) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    /**
+     * Waits for a request started with {@link #start(String, Hop)}.
+     *
+     * @param name The name of the hop, for messages.
+     * @param future The request in flight.
+     * @param deadline The {@link System#nanoTime()} by which the request has to be answered.
+     * @return The response.
+     * @throws MicrosoftAuthenticationException If the request failed, timed out or the chain was cancelled.
+     */
+    private <T> T await(String name, Future<T> future, long deadline) throws MicrosoftAuthenticationException {
+        try {
+            return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new MicrosoftAuthenticationException(name + " did not answer within " + hopTimeout.toSeconds() + " s");
+        } catch (CancellationException e) {
+            throw new MicrosoftAuthenticationException("Sign-in cancelled during " + name);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof MicrosoftAuthenticationException authentication
+                    ? authentication : new MicrosoftAuthenticationException(cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MicrosoftAuthenticationException("Sign-in interrupted during " + name);
+        } finally {
+            inFlight.remove(future);
+        }
+    }
+}
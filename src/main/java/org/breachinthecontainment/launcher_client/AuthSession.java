@@ -0,0 +1,227 @@
+package org.breachinthecontainment.launcher_client;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import fr.litarvan.openauth.microsoft.MicrosoftAuthResult;
+import fr.litarvan.openauth.microsoft.model.response.MinecraftProfile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * The tokens of every hop of the Microsoft sign-in chain with their expiry, as saved in
+ * session.json: the Microsoft refresh token, the Xbox Live user token, the XSTS token and the
+ * Minecraft access token, plus the profile they were issued for. Signing in again only redoes the
+ * hops after the last token that is still valid, and nothing at all while the Minecraft token is.
+ * <p>
+ * Instances are immutable; every hop produces a new session, so a session can be published to
+ * other threads through a single volatile write.
+ */
+final class AuthSession {
+
+    // A token this close to its expiry is treated as expired, so it does not lapse while in use
+    static final Duration EXPIRY_MARGIN = Duration.ofMinutes(5);
+
+    private static final Gson gson = new Gson();
+
+    @SerializedName("refresh_token")
+    private final String refreshToken;
+    private final Token xbox;
+    private final Token xsts;
+    private final Token minecraft;
+    private final String minecraftUsername;
+    private final MinecraftProfile profile;
+
+    /**
+     * A token and when it stops being accepted.
+     *
+     * @param value The token.
+     * @param userHash The user hash the Xbox Live and XSTS tokens are issued with, null for Minecraft.
+     * @param expiresAt The expiry, in milliseconds since the epoch.
+     */
+    record Token(String value, String userHash, long expiresAt) {
+        /**
+         * @param now The current time.
+         * @return true if the token can still be used for at least {@link #EXPIRY_MARGIN}.
+         */
+        boolean isValid(Instant now) {
+            return value != null && now.plus(EXPIRY_MARGIN).toEpochMilli() < expiresAt;
+        }
+    }
+
+    AuthSession(String refreshToken, Token xbox, Token xsts, Token minecraft, String minecraftUsername, MinecraftProfile profile) {
+        this.refreshToken = refreshToken;
+        this.xbox = xbox;
+        this.xsts = xsts;
+        this.minecraft = minecraft;
+        this.minecraftUsername = minecraftUsername;
+        this.profile = profile;
+    }
+
+    /**
+     * @param refreshToken A Microsoft refresh token.
+     * @return A session holding nothing but the refresh token, from which the whole chain is redone.
+     */
+    static AuthSession ofRefreshToken(String refreshToken) {
+        return new AuthSession(refreshToken, null, null, null, null, null);
+    }
+
+    String refreshToken() {
+        return refreshToken;
+    }
+
+    /**
+     * @return The Xbox Live user token, may be null.
+     */
+    Token xbox() {
+        return xbox;
+    }
+
+    /**
+     * @return The XSTS token, may be null.
+     */
+    Token xsts() {
+        return xsts;
+    }
+
+    /**
+     * @return The Minecraft access token, may be null.
+     */
+    Token minecraft() {
+        return minecraft;
+    }
+
+    /**
+     * @return The Minecraft profile, may be null.
+     */
+    MinecraftProfile profile() {
+        return profile;
+    }
+
+    /**
+     * @param now The current time.
+     * @return true if the session can be used as is, without any request.
+     */
+    boolean isValid(Instant now) {
+        return minecraft != null && minecraft.isValid(now) && profile != null && xbox != null;
+    }
+
+    /**
+     * @return The earliest expiry of the cached tokens, null if none is cached.
+     */
+    Instant nextExpiry() {
+        long earliest = Long.MAX_VALUE;
+        for (Token token : new Token[]{xbox, xsts, minecraft}) {
+            if (token != null) {
+                earliest = Math.min(earliest, token.expiresAt());
+            }
+        }
+        return earliest == Long.MAX_VALUE ? null : Instant.ofEpochMilli(earliest);
+    }
+
+    AuthSession withRefreshToken(String token) {
+        return new AuthSession(token, xbox, xsts, minecraft, minecraftUsername, profile);
+    }
+
+    AuthSession withXbox(Token token) {
+        return new AuthSession(refreshToken, token, xsts, minecraft, minecraftUsername, profile);
+    }
+
+    AuthSession withXsts(Token token) {
+        return new AuthSession(refreshToken, xbox, token, minecraft, minecraftUsername, profile);
+    }
+
+    AuthSession withMinecraft(Token token, String username, MinecraftProfile minecraftProfile) {
+        return new AuthSession(refreshToken, xbox, xsts, token, username, minecraftProfile);
+    }
+
+    /**
+     * @return The session in the form OpenAuth and the game launch use.
+     */
+    MicrosoftAuthResult toResult() {
+        return new MicrosoftAuthResult(
+                profile,
+                minecraft.value(),
+                refreshToken,
+                xbox.userHash(),
+                Base64.getEncoder().encodeToString(minecraftUsername.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+    /**
+     * Loads a session previously written with {@link #save(Path)}. A session.json written before
+     * the tokens were cached only holds the refresh token, which still signs in with the full chain.
+     *
+     * @param file The session file.
+     * @return The session, or null if it does not exist or has no refresh token.
+     * @throws IOException If the file cannot be read or parsed.
+     */
+    static AuthSession load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file)) {
+            AuthSession session = gson.fromJson(reader, AuthSession.class);
+            return session == null || session.refreshToken == null ? null : session;
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed session file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the session next to its final location and renames it into place, so a crash never
+     * leaves a truncated session behind. The file holds bearer tokens, so it is created readable by
+     * its owner only before anything is written to it.
+     *
+     * @param file The session file.
+     * @throws IOException If the session cannot be written.
+     */
+    void save(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        createOwnerOnly(temp);
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            gson.toJson(this, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Creates an empty file only its owner can read and write: mode rw------- where POSIX
+     * permissions are supported, a single ACL entry for the owner on Windows.
+     */
+    private static void createOwnerOnly(Path file) throws IOException {
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            return;
+        }
+        Files.createFile(file);
+        AclFileAttributeView acl = Files.getFileAttributeView(file, AclFileAttributeView.class);
+        if (acl != null) {
+            UserPrincipal owner = Files.getOwner(file);
+            acl.setAcl(List.of(AclEntry.newBuilder()
+                    .setType(AclEntryType.ALLOW)
+                    .setPrincipal(owner)
+                    .setPermissions(EnumSet.allOf(AclEntryPermission.class))
+                    .build()));
+        }
+    }
+}
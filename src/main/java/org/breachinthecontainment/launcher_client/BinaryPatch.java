@@ -0,0 +1,315 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binary patches turning one version of a file into the next, so a large file that changed
+ * slightly between releases does not have to be extracted again from scratch.
+ * <p>
+ * A patch starts with a header holding the SHA-256 of the file it applies to, the SHA-256 and size
+ * of the file it produces, followed by a sequence of operations: copy a range of the source file,
+ * or insert literal bytes carried by the patch. Patches are created rsync-style, by matching fixed
+ * size blocks of the source with a rolling checksum and extending every match as far as it goes.
+ * <p>
+ * Releases ship patches inside data.zip under {@link #PATCH_DIR}, named after the entry they
+ * produce with {@link #PATCH_SUFFIX} appended.
+ * <p>
+ * Usage: {@code BinaryPatch create <old> <new> <patch>} or {@code BinaryPatch apply <old> <patch> <new>}.
+ */
+public class BinaryPatch {
+
+    // Where patches live in data.zip; they are not part of the installed tree
+    public static final String PATCH_DIR = ".patches/";
+    public static final String PATCH_SUFFIX = ".bpatch";
+
+    private static final byte[] MAGIC = {'B', 'I', 'T', 'C', 'P', 'A', 'T', '1'};
+    private static final int OP_END = 0;
+    private static final int OP_COPY = 1;
+    private static final int OP_DATA = 2;
+
+    // Granularity of the matching; smaller blocks find more matches but index more of the source
+    private static final int BLOCK_SIZE = 4096;
+    // Literal runs are split so the applier never needs a large buffer
+    private static final int MAX_DATA_LENGTH = 1 << 20;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final Set<HashEngine.Algorithm> SHA256 = EnumSet.of(HashEngine.Algorithm.SHA256);
+
+    /**
+     * The header of a patch.
+     *
+     * @param sourceHash The SHA-256 of the file the patch applies to.
+     * @param targetHash The SHA-256 of the file the patch produces.
+     * @param targetSize The size of the file the patch produces.
+     */
+    public record Header(String sourceHash, String targetHash, long targetSize) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4 || !(args[0].equals("create") || args[0].equals("apply"))) {
+            System.out.println("Usage: java BinaryPatch create <old> <new> <patch>");
+            System.out.println("       java BinaryPatch apply <old> <patch> <new>");
+            System.exit(1);
+        }
+
+        if (args[0].equals("create")) {
+            try (OutputStream out = Files.newOutputStream(Paths.get(args[3]))) {
+                create(Paths.get(args[1]), Paths.get(args[2]), out);
+            }
+            System.out.println("Patch written: " + Files.size(Paths.get(args[3])) + " bytes for a "
+                    + Files.size(Paths.get(args[2])) + " bytes file.");
+        } else {
+            try (InputStream patch = Files.newInputStream(Paths.get(args[2]))) {
+                String hash = apply(Paths.get(args[1]), patch, Paths.get(args[3]), null);
+                System.out.println("Patched file verified: " + hash);
+            }
+        }
+    }
+
+    /**
+     * Creates a patch turning {@code source} into {@code target}. Both files are held in memory,
+     * this is meant for release tooling rather than for the launcher itself.
+     *
+     * @param source The previous version of the file.
+     * @param target The new version of the file.
+     * @param out Where the patch is written.
+     * @throws IOException If a file cannot be read, is larger than 2 GiB, or the patch cannot be written.
+     */
+    public static void create(Path source, Path target, OutputStream out) throws IOException {
+        byte[] old = Files.readAllBytes(source);
+        byte[] now = Files.readAllBytes(target);
+
+        DataOutputStream patch = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        patch.write(MAGIC);
+        patch.write(HashEngine.hash(ByteBuffer.wrap(old), SHA256).sha256());
+        patch.write(HashEngine.hash(ByteBuffer.wrap(now), SHA256).sha256());
+        patch.writeLong(now.length);
+
+        // Weak checksum of every source block; collisions are resolved by comparing the bytes
+        Map<Integer, int[]> blocks = new HashMap<>();
+        for (int block = 0; (long) (block + 1) * BLOCK_SIZE <= old.length; block++) {
+            int weak = weakChecksum(old, block * BLOCK_SIZE);
+            int[] known = blocks.get(weak);
+            if (known == null) {
+                blocks.put(weak, new int[]{block});
+            } else if (known.length < 8) {
+                // A few candidates are enough, long lists only come from repeated content
+                int[] grown = Arrays.copyOf(known, known.length + 1);
+                grown[known.length] = block;
+                blocks.put(weak, grown);
+            }
+        }
+
+        int position = 0;
+        int literalStart = 0;
+        int a = 0;
+        int b = 0;
+        if (now.length >= BLOCK_SIZE) {
+            int weak = weakChecksum(now, 0);
+            a = weak & 0xFFFF;
+            b = weak >>> 16;
+        }
+        while (position + BLOCK_SIZE <= now.length) {
+            int match = findBlock(blocks.get(b << 16 | a), old, now, position);
+            if (match >= 0) {
+                long sourceOffset = (long) match * BLOCK_SIZE;
+                int length = BLOCK_SIZE;
+                // Extend the match forward, then backward into the pending literal bytes
+                while (position + length < now.length && sourceOffset + length < old.length
+                        && now[position + length] == old[(int) sourceOffset + length]) {
+                    length++;
+                }
+                while (position > literalStart && sourceOffset > 0 && now[position - 1] == old[(int) sourceOffset - 1]) {
+                    position--;
+                    sourceOffset--;
+                    length++;
+                }
+
+                writeData(patch, now, literalStart, position);
+                patch.writeByte(OP_COPY);
+                patch.writeLong(sourceOffset);
+                patch.writeInt(length);
+                position += length;
+                literalStart = position;
+                if (position + BLOCK_SIZE <= now.length) {
+                    int weak = weakChecksum(now, position);
+                    a = weak & 0xFFFF;
+                    b = weak >>> 16;
+                }
+            } else {
+                // Roll the checksum one byte forward
+                if (position + BLOCK_SIZE < now.length) {
+                    int leaving = now[position] & 0xFF;
+                    int entering = now[position + BLOCK_SIZE] & 0xFF;
+                    a = (a - leaving + entering) & 0xFFFF;
+                    b = (b - BLOCK_SIZE * leaving + a) & 0xFFFF;
+                }
+                position++;
+                if (position - literalStart >= MAX_DATA_LENGTH) {
+                    writeData(patch, now, literalStart, position);
+                    literalStart = position;
+                }
+            }
+        }
+        writeData(patch, now, literalStart, now.length);
+        patch.writeByte(OP_END);
+        patch.flush();
+    }
+
+    /**
+     * Reads the header of a patch, leaving the stream positioned at the first operation.
+     *
+     * @param patch The patch stream.
+     * @return The header.
+     * @throws IOException If the stream is not a patch.
+     */
+    public static Header readHeader(DataInputStream patch) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        patch.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a binary patch");
+        }
+        byte[] hash = new byte[32];
+        patch.readFully(hash);
+        String sourceHash = HashEngine.toHex(hash);
+        patch.readFully(hash);
+        return new Header(sourceHash, HashEngine.toHex(hash), patch.readLong());
+    }
+
+    /**
+     * Applies a patch while streaming it, and verifies the SHA-256 of the result.
+     *
+     * @param source The file the patch was made against.
+     * @param patch The patch stream.
+     * @param output The file to write, replaced if it exists.
+     * @param expectedSourceHash The SHA-256 the caller knows the source to have, checked against the
+     *                           header before anything is written, or null to rely on the final check.
+     * @return The SHA-256 of the patched file, as recorded in the patch.
+     * @throws IOException If the patch does not apply to this source, is corrupted, or the result
+     *                     does not match the expected hash.
+     */
+    public static String apply(Path source, InputStream patch, Path output, String expectedSourceHash) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(patch, BUFFER_SIZE));
+        Header header = readHeader(in);
+        if (expectedSourceHash != null && !header.sourceHash().equalsIgnoreCase(expectedSourceHash)) {
+            throw new IOException("Patch was made for another version of " + source.getFileName());
+        }
+
+        HashEngine.Hasher digest = HashEngine.newHasher(SHA256);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long written = 0;
+        try (FileChannel from = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel to = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                     StandardOpenOption.WRITE)) {
+            long sourceSize = from.size();
+            while (true) {
+                int op = in.readUnsignedByte();
+                if (op == OP_END) {
+                    break;
+                } else if (op == OP_COPY) {
+                    long offset = in.readLong();
+                    long remaining = in.readInt();
+                    if (offset < 0 || remaining < 0 || offset + remaining > sourceSize) {
+                        throw new IOException("Patch copies outside of " + source.getFileName());
+                    }
+                    while (remaining > 0) {
+                        buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                        int read = from.read(buffer, offset);
+                        if (read <= 0) {
+                            throw new EOFException("Unexpected end of " + source.getFileName());
+                        }
+                        offset += read;
+                        remaining -= read;
+                        written += writeVerified(buffer.flip(), to, digest);
+                    }
+                } else if (op == OP_DATA) {
+                    int remaining = in.readInt();
+                    if (remaining < 0 || remaining > MAX_DATA_LENGTH) {
+                        throw new IOException("Corrupted patch data length " + remaining);
+                    }
+                    while (remaining > 0) {
+                        int read = in.read(buffer.array(), 0, Math.min(buffer.capacity(), remaining));
+                        if (read < 0) {
+                            throw new EOFException("Unexpected end of patch");
+                        }
+                        remaining -= read;
+                        written += writeVerified(buffer.clear().limit(read), to, digest);
+                    }
+                } else {
+                    throw new IOException("Unknown patch operation " + op);
+                }
+            }
+        }
+
+        if (written != header.targetSize() || !HashEngine.hexEquals(digest.finish().sha256(), header.targetHash())) {
+            throw new IOException("Patched " + source.getFileName() + " does not match the expected result");
+        }
+        return header.targetHash();
+    }
+
+    private static int writeVerified(ByteBuffer buffer, FileChannel out, HashEngine.Hasher digest) throws IOException {
+        int length = buffer.remaining();
+        digest.update(buffer.array(), buffer.position(), length);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        return length;
+    }
+
+    private static void writeData(DataOutputStream patch, byte[] content, int from, int to) throws IOException {
+        for (int start = from; start < to; start += MAX_DATA_LENGTH) {
+            int length = Math.min(MAX_DATA_LENGTH, to - start);
+            patch.writeByte(OP_DATA);
+            patch.writeInt(length);
+            patch.write(content, start, length);
+        }
+    }
+
+    /**
+     * Finds a source block with exactly the content of the target block at {@code position}.
+     */
+    private static int findBlock(int[] candidates, byte[] old, byte[] now, int position) {
+        if (candidates == null) {
+            return -1;
+        }
+        for (int block : candidates) {
+            int offset = block * BLOCK_SIZE;
+            if (Arrays.equals(old, offset, offset + BLOCK_SIZE, now, position, position + BLOCK_SIZE)) {
+                return block;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The rsync rolling checksum of the block starting at {@code offset}, both 16-bit sums packed in an int.
+     */
+    private static int weakChecksum(byte[] content, int offset) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            int value = content[offset + i] & 0xFF;
+            a += value;
+            b += (BLOCK_SIZE - i) * value;
+        }
+        return (b & 0xFFFF) << 16 | (a & 0xFFFF);
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Read-through access to the game data inside data.zip, for the parts of the launcher that only
+ * need a few entries, such as config files or a version JSON. Entries are read straight from the
+ * mapped archive through its name index, without extracting anything, and the files a launch
+ * needs on disk can be materialized on their own instead of extracting the whole archive.
+ */
+public class DataArchive implements Closeable {
+
+    private final Path file;
+    private final ZipArchive zip;
+    private final LauncherLogger logger;
+
+    private DataArchive(Path file, ZipArchive zip, LauncherLogger logger) {
+        this.file = file;
+        this.zip = zip;
+        this.logger = logger;
+    }
+
+    /**
+     * Opens an archive and indexes its entries.
+     *
+     * @param file The zip file.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The opened archive, which must be closed.
+     * @throws IOException If the file is not a readable zip file.
+     */
+    public static DataArchive open(Path file, LauncherLogger logger) throws IOException {
+        long start = System.nanoTime();
+        ZipArchive zip = ZipArchive.open(file);
+        logger.debug(Category.INSTALLER, "Indexed {} entries of {} in {} ms.", zip.entries().size(), file,
+                (System.nanoTime() - start) / 1_000_000);
+        return new DataArchive(file, zip, logger);
+    }
+
+    /**
+     * @param name The entry name.
+     * @return true if the archive has an entry with this name.
+     */
+    public boolean contains(String name) {
+        return zip.entry(name) != null;
+    }
+
+    /**
+     * Opens a stream over an entry, inflating it as it is read.
+     *
+     * @param name The entry name.
+     * @return A stream over the entry content, which must be closed.
+     * @throws IOException If there is no such entry or it cannot be read.
+     */
+    public InputStream open(String name) throws IOException {
+        return zip.openStream(require(name));
+    }
+
+    /**
+     * Reads a whole entry, checking its CRC32.
+     *
+     * @param name The entry name.
+     * @return The entry content.
+     * @throws IOException If there is no such entry, it cannot be read or it is corrupted.
+     */
+    public byte[] read(String name) throws IOException {
+        return zip.read(require(name));
+    }
+
+    /**
+     * Reads a whole text entry, such as a config file or a version JSON.
+     *
+     * @param name The entry name.
+     * @return The entry content decoded as UTF-8.
+     * @throws IOException If there is no such entry, it cannot be read or it is corrupted.
+     */
+    public String readString(String name) throws IOException {
+        return new String(read(name), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Extracts only the given entries to a directory. Files already present with the size recorded
+     * in the archive are left alone, so materializing the same set again costs a few stat calls.
+     *
+     * @param names Entry names; a name ending with a slash selects every file under that directory.
+     * @param outputDir The directory the entries are extracted to.
+     * @param store The object store files go through, or null to write them directly.
+     * @param manifest The manifest of the archive, whose SHA-256 of entries let the store link
+     *                 content it already holds, may be null.
+     * @return The number of files that had to be extracted.
+     * @throws IOException If an entry does not exist or cannot be extracted.
+     */
+    public int materialize(Collection<String> names, Path outputDir, ObjectStore store, InstallManifest manifest)
+            throws IOException {
+        Set<String> wanted = new TreeSet<>();
+        for (String name : names) {
+            if (name.endsWith("/")) {
+                for (ZipArchive.Entry entry : zip.entries()) {
+                    if (!entry.isDirectory() && entry.name().startsWith(name)) {
+                        wanted.add(entry.name());
+                    }
+                }
+            } else {
+                wanted.add(require(name).name());
+            }
+        }
+
+        Path root = outputDir.toAbsolutePath().normalize();
+        Set<String> missing = new TreeSet<>();
+        for (String name : wanted) {
+            Path target = ZipExtractor.resolve(root, name);
+            if (!Files.isRegularFile(target) || Files.size(target) != zip.entry(name).size()) {
+                missing.add(name);
+            }
+        }
+        logger.info(Category.INSTALLER, "Materializing " + missing.size() + " of " + wanted.size() + " requested entries into " + root);
+        if (!missing.isEmpty()) {
+            ZipExtractor.extract(file, root, missing, store, manifest, null, null, logger);
+        }
+        return missing.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    private ZipArchive.Entry require(String name) throws IOException {
+        ZipArchive.Entry entry = zip.entry(name);
+        if (entry == null || entry.isDirectory()) {
+            throw new IOException("No such entry in " + file.getFileName() + ": " + name);
+        }
+        return entry;
+    }
+}
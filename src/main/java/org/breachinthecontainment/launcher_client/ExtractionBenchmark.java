@@ -0,0 +1,118 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compares the original sequential extraction of data.zip with {@link ZipExtractor}.
+ * Without an archive argument a synthetic archive with the requested number of entries is generated.
+ */
+public class ExtractionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int entryCount = 10_000;
+        Path source = null;
+        for (String arg : args) {
+            if (arg.endsWith(".zip")) {
+                source = Paths.get(arg);
+            } else {
+                entryCount = Integer.parseInt(arg);
+            }
+        }
+
+        Path workDir = Files.createTempDirectory("extraction-benchmark");
+        try {
+            Path archive = source != null ? source : workDir.resolve("synthetic.zip");
+            if (source == null) {
+                generateArchive(archive, entryCount);
+                System.out.println("Generated " + entryCount + " entries in " + archive);
+            }
+
+            // Warm the page cache so both runs start from the same state
+            extractSequential(archive, workDir.resolve("warmup"));
+
+            long sequential = time(() -> extractSequential(archive, workDir.resolve("sequential")));
+            long parallel = time(() -> ZipExtractor.extract(archive, workDir.resolve("parallel"), null));
+
+            System.out.println("Sequential ZipInputStream: " + sequential / 1_000_000 + " ms");
+            System.out.println("Parallel ZipExtractor (" + Runtime.getRuntime().availableProcessors()
+                    + " workers): " + parallel / 1_000_000 + " ms");
+            System.out.printf("Speedup: %.2fx%n", (double) sequential / parallel);
+        } finally {
+            try (Stream<Path> walk = Files.walk(workDir)) {
+                walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private interface Run {
+        void run() throws IOException;
+    }
+
+    private static long time(Run run) throws IOException {
+        long start = System.nanoTime();
+        run.run();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The extraction loop used by Installer before ZipExtractor, kept here as the baseline.
+     */
+    private static void extractSequential(Path archive, Path outputDir) throws IOException {
+        try (InputStream stream = Files.newInputStream(archive);
+             ZipInputStream zis = new ZipInputStream(stream)) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                Path newFilePath = outputDir.resolve(entry.getName());
+                if (entry.isDirectory()) {
+                    Files.createDirectories(newFilePath);
+                } else {
+                    Path parent = newFilePath.getParent();
+                    if (parent != null && !Files.exists(parent)) {
+                        Files.createDirectories(parent);
+                    }
+                    try (FileOutputStream fos = new FileOutputStream(newFilePath.toFile())) {
+                        byte[] buffer = new byte[1024];
+                        int length;
+                        while ((length = zis.read(buffer)) > 0) {
+                            fos.write(buffer, 0, length);
+                        }
+                    }
+                }
+                zis.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Writes an archive of compressible files of varying sizes spread over a hundred directories.
+     */
+    private static void generateArchive(Path archive, int entryCount) throws IOException {
+        Random random = new Random(42);
+        byte[] words = "minecraft forge texture model sound config library ".getBytes();
+        try (OutputStream out = Files.newOutputStream(archive);
+             ZipOutputStream zos = new ZipOutputStream(out)) {
+            for (int i = 0; i < entryCount; i++) {
+                zos.putNextEntry(new ZipEntry("dir" + (i % 100) + "/file" + i + ".dat"));
+                int size = 1024 + random.nextInt(64 * 1024);
+                byte[] content = new byte[size];
+                for (int j = 0; j < size; j++) {
+                    content[j] = random.nextInt(4) == 0 ? (byte) random.nextInt() : words[j % words.length];
+                }
+                zos.write(content);
+                zos.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Append-only record of the entries already extracted into the staging directory.
+ * The first line holds the checksum of the archive being extracted, each following line the name
+ * of a completed entry. When the launcher is killed during an extraction, the next start reads the
+ * journal back and only extracts what is missing.
+ */
+public class ExtractionJournal implements Closeable {
+
+    private static final String HEADER_PREFIX = "# ";
+    // Entries are flushed in batches; losing the last batch only means extracting it again
+    private static final int FLUSH_INTERVAL = 64;
+
+    private final Set<String> completed;
+    private final BufferedWriter writer;
+    private int unflushed;
+
+    private ExtractionJournal(Set<String> completed, BufferedWriter writer) {
+        this.completed = Collections.unmodifiableSet(completed);
+        this.writer = writer;
+    }
+
+    /**
+     * Opens the journal for an archive. If the journal was written for another archive, or cannot
+     * be read, it is discarded and a new one is started.
+     *
+     * @param file The journal file.
+     * @param archiveChecksum The SHA-256 of the archive being extracted.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The opened journal, which must be closed.
+     * @throws IOException If the journal cannot be written.
+     */
+    public static ExtractionJournal open(Path file, String archiveChecksum, LauncherLogger logger) throws IOException {
+        String header = HEADER_PREFIX + archiveChecksum;
+        Set<String> completed = new HashSet<>();
+
+        if (Files.exists(file)) {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            String[] lines = content.split("\n", -1);
+            if (lines.length > 1 && lines[0].equals(header)) {
+                // The last element is either empty or a line torn by the crash, skip it either way
+                for (int i = 1; i < lines.length - 1; i++) {
+                    completed.add(lines[i]);
+                }
+                logger.info(Category.INSTALLER, "Resuming extraction, journal lists " + completed.size() + " completed entries.");
+            } else {
+                logger.warn(Category.INSTALLER, "Discarding extraction journal written for another archive.");
+            }
+        }
+
+        BufferedWriter writer;
+        if (completed.isEmpty()) {
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            writer.write(header);
+            writer.write('\n');
+            writer.flush();
+        } else {
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+        return new ExtractionJournal(completed, writer);
+    }
+
+    /**
+     * Reads the checksum of the archive a journal was written for, without opening it.
+     *
+     * @param file The journal file.
+     * @return The archive checksum, or null if there is no readable journal.
+     */
+    public static String readChecksum(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            return header != null && header.startsWith(HEADER_PREFIX) ? header.substring(HEADER_PREFIX.length()) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The names of the entries a previous run finished extracting.
+     */
+    public Set<String> completed() {
+        return completed;
+    }
+
+    /**
+     * Records that an entry has been fully written to the staging directory.
+     * Safe to call from several extraction workers.
+     *
+     * @param name The name of the entry.
+     * @throws IOException If the journal cannot be written.
+     */
+    public synchronized void record(String name) throws IOException {
+        writer.write(name);
+        writer.write('\n');
+        if (++unflushed >= FLUSH_INTERVAL) {
+            writer.flush();
+            unflushed = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,445 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Computes several digests of the same data in a single pass: CRC32 as stored in zip files, SHA-1
+ * as used by Minecraft and Forge manifests, and SHA-256 as used by the launcher itself.
+ * <p>
+ * Files and channels are read through large direct buffers. Buffers and {@link MessageDigest}
+ * instances are borrowed from a small shared pool for the duration of a call rather than kept per
+ * thread, so hashing many files allocates little more than the results, even from short-lived
+ * virtual threads. Code that feeds data itself, such as a copy loop or a download, uses a
+ * {@link Hasher} of its own.
+ */
+public final class HashEngine {
+
+    /**
+     * Supported digests.
+     */
+    public enum Algorithm {
+        CRC32(null, 4),
+        SHA1("SHA-1", 20),
+        SHA256("SHA-256", 32);
+
+        private final String jcaName;
+        private final int length;
+
+        Algorithm(String jcaName, int length) {
+            this.jcaName = jcaName;
+            this.length = length;
+        }
+
+        /**
+         * @return The digest length in bytes.
+         */
+        public int length() {
+            return length;
+        }
+    }
+
+    // Large enough that reads are never the bottleneck, small enough to keep a few pooled
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // Workspaces returned while the pool is full are dropped, which bounds the memory kept idle
+    private static final BlockingQueue<Workspace> WORKSPACES = new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    private HashEngine() {
+    }
+
+    /**
+     * What one hashing call needs, borrowed from the pool. The buffers are allocated on first use,
+     * so a workspace that only ever hashes buffers holds none.
+     */
+    private static final class Workspace {
+        private final Hasher hasher = new Hasher(EnumSet.allOf(Algorithm.class));
+        private ByteBuffer direct;
+        private byte[] heap;
+
+        private ByteBuffer direct() {
+            if (direct == null) {
+                direct = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            return direct;
+        }
+
+        private byte[] heap() {
+            if (heap == null) {
+                heap = new byte[BUFFER_SIZE / 4];
+            }
+            return heap;
+        }
+    }
+
+    private static Workspace borrow() {
+        Workspace workspace = WORKSPACES.poll();
+        return workspace != null ? workspace : new Workspace();
+    }
+
+    private static void giveBack(Workspace workspace) {
+        workspace.hasher.reset();
+        WORKSPACES.offer(workspace);
+    }
+
+    /**
+     * The digests of some data.
+     *
+     * @param size The number of bytes hashed.
+     * @param crc32 The CRC32, or -1 if it was not requested.
+     * @param sha1 The SHA-1, or null if it was not requested.
+     * @param sha256 The SHA-256, or null if it was not requested.
+     */
+    public record Digests(long size, long crc32, byte[] sha1, byte[] sha256) {
+        /**
+         * @param algorithm A requested algorithm.
+         * @return The digest as a lowercase hex string.
+         */
+        public String hex(Algorithm algorithm) {
+            return switch (algorithm) {
+                case CRC32 -> {
+                    char[] chars = new char[8];
+                    for (int i = 0; i < 8; i++) {
+                        chars[i] = HEX_DIGITS[(int) (crc32 >>> (28 - 4 * i)) & 0xF];
+                    }
+                    yield new String(chars);
+                }
+                case SHA1 -> toHex(sha1);
+                case SHA256 -> toHex(sha256);
+            };
+        }
+    }
+
+    /**
+     * Accumulates several digests over data fed in pieces. Not thread safe; reusable after
+     * {@link #finish()}.
+     */
+    public static final class Hasher {
+        private final CRC32 crc;
+        private final MessageDigest sha1;
+        private final MessageDigest sha256;
+        private boolean crcEnabled;
+        private boolean sha1Enabled;
+        private boolean sha256Enabled;
+        private long size;
+
+        private Hasher(Set<Algorithm> available) {
+            crc = available.contains(Algorithm.CRC32) ? new CRC32() : null;
+            sha1 = available.contains(Algorithm.SHA1) ? newDigest(Algorithm.SHA1) : null;
+            sha256 = available.contains(Algorithm.SHA256) ? newDigest(Algorithm.SHA256) : null;
+            select(available);
+        }
+
+        private Hasher select(Set<Algorithm> algorithms) {
+            crcEnabled = crc != null && algorithms.contains(Algorithm.CRC32);
+            sha1Enabled = sha1 != null && algorithms.contains(Algorithm.SHA1);
+            sha256Enabled = sha256 != null && algorithms.contains(Algorithm.SHA256);
+            reset();
+            return this;
+        }
+
+        /**
+         * Discards the data fed so far.
+         */
+        public void reset() {
+            size = 0;
+            if (crc != null) {
+                crc.reset();
+            }
+            if (sha1 != null) {
+                sha1.reset();
+            }
+            if (sha256 != null) {
+                sha256.reset();
+            }
+        }
+
+        /**
+         * Feeds the remaining bytes of a buffer, leaving it with no remaining bytes.
+         *
+         * @param buffer The data.
+         */
+        public void update(ByteBuffer buffer) {
+            int start = buffer.position();
+            int end = buffer.limit();
+            if (crcEnabled) {
+                crc.update(buffer);
+                buffer.position(start);
+            }
+            if (sha1Enabled) {
+                sha1.update(buffer);
+                buffer.position(start);
+            }
+            if (sha256Enabled) {
+                sha256.update(buffer);
+            }
+            buffer.position(end);
+            size += end - start;
+        }
+
+        /**
+         * Feeds part of an array.
+         *
+         * @param bytes The data.
+         * @param offset The first byte to feed.
+         * @param length The number of bytes to feed.
+         */
+        public void update(byte[] bytes, int offset, int length) {
+            if (crcEnabled) {
+                crc.update(bytes, offset, length);
+            }
+            if (sha1Enabled) {
+                sha1.update(bytes, offset, length);
+            }
+            if (sha256Enabled) {
+                sha256.update(bytes, offset, length);
+            }
+            size += length;
+        }
+
+        /**
+         * Completes the digests and resets the hasher for new data.
+         *
+         * @return The digests of the data fed since the last reset.
+         */
+        public Digests finish() {
+            Digests digests = new Digests(size, crcEnabled ? crc.getValue() : -1,
+                    sha1Enabled ? finish(sha1, Algorithm.SHA1) : null,
+                    sha256Enabled ? finish(sha256, Algorithm.SHA256) : null);
+            reset();
+            return digests;
+        }
+
+        private static byte[] finish(MessageDigest digest, Algorithm algorithm) {
+            byte[] result = new byte[algorithm.length()];
+            try {
+                digest.digest(result, 0, result.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Creates a hasher for data fed by the caller, such as a copy loop or a download.
+     *
+     * @param algorithms The digests to compute.
+     * @return A new hasher.
+     */
+    public static Hasher newHasher(Set<Algorithm> algorithms) {
+        return new Hasher(algorithms);
+    }
+
+    /**
+     * Hashes a whole file.
+     *
+     * @param file The file.
+     * @param algorithms The digests to compute.
+     * @return The digests.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Digests hash(Path file, Set<Algorithm> algorithms) throws IOException {
+        return hash(file, 0, Long.MAX_VALUE, algorithms, null);
+    }
+
+    /**
+     * Hashes a range of a file, publishing the bytes read.
+     *
+     * @param file The file.
+     * @param position The position of the first byte.
+     * @param length The maximum number of bytes to hash; the range ends early at the end of the file.
+     * @param algorithms The digests to compute.
+     * @param progress Receives the number of bytes hashed, may be null.
+     * @return The digests.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Digests hash(Path file, long position, long length, Set<Algorithm> algorithms,
+                               InstallProgress progress) throws IOException {
+        Workspace workspace = borrow();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Hasher hasher = workspace.hasher.select(algorithms);
+            ByteBuffer buffer = workspace.direct();
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                remaining -= read;
+                hasher.update(buffer.flip());
+                if (progress != null) {
+                    progress.addBytes(read);
+                }
+            }
+            return hasher.finish();
+        } finally {
+            giveBack(workspace);
+        }
+    }
+
+    /**
+     * Hashes everything a channel delivers until its end.
+     *
+     * @param channel The channel, left open.
+     * @param algorithms The digests to compute.
+     * @return The digests.
+     * @throws IOException If the channel cannot be read.
+     */
+    public static Digests hash(ReadableByteChannel channel, Set<Algorithm> algorithms) throws IOException {
+        Workspace workspace = borrow();
+        try {
+            Hasher hasher = workspace.hasher.select(algorithms);
+            ByteBuffer buffer = workspace.direct();
+            while (channel.read(buffer.clear()) >= 0) {
+                hasher.update(buffer.flip());
+            }
+            return hasher.finish();
+        } finally {
+            giveBack(workspace);
+        }
+    }
+
+    /**
+     * Hashes everything a stream delivers until its end, publishing the bytes read.
+     *
+     * @param stream The stream, left open.
+     * @param algorithms The digests to compute.
+     * @param progress Receives the number of bytes hashed, may be null.
+     * @return The digests.
+     * @throws IOException If the stream cannot be read.
+     */
+    public static Digests hash(InputStream stream, Set<Algorithm> algorithms, InstallProgress progress) throws IOException {
+        Workspace workspace = borrow();
+        try {
+            Hasher hasher = workspace.hasher.select(algorithms);
+            byte[] buffer = workspace.heap();
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                hasher.update(buffer, 0, read);
+                if (progress != null) {
+                    progress.addBytes(read);
+                }
+            }
+            return hasher.finish();
+        } finally {
+            giveBack(workspace);
+        }
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer, such as a slice of a mapped archive, without
+     * changing its position.
+     *
+     * @param buffer The data.
+     * @param algorithms The digests to compute.
+     * @return The digests.
+     */
+    public static Digests hash(ByteBuffer buffer, Set<Algorithm> algorithms) {
+        Workspace workspace = borrow();
+        try {
+            Hasher hasher = workspace.hasher.select(algorithms);
+            hasher.update(buffer.duplicate());
+            return hasher.finish();
+        } finally {
+            giveBack(workspace);
+        }
+    }
+
+    /**
+     * Creates a standalone digest instance, for code that keeps its own.
+     *
+     * @param algorithm A message digest algorithm, not {@link Algorithm#CRC32}.
+     * @return A new digest.
+     * @throws IllegalArgumentException If the algorithm is not a message digest.
+     */
+    public static MessageDigest newDigest(Algorithm algorithm) {
+        if (algorithm.jcaName == null) {
+            throw new IllegalArgumentException(algorithm + " is not a message digest");
+        }
+        try {
+            return MessageDigest.getInstance(algorithm.jcaName);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1 and SHA-256
+            throw new IllegalStateException("Unsupported digest " + algorithm, e);
+        }
+    }
+
+    /**
+     * Encodes bytes as lowercase hex into an existing array, without allocating.
+     *
+     * @param bytes The bytes to encode.
+     * @param out The destination, which must have room for two characters per byte.
+     * @param offset Where the first character is written.
+     */
+    public static void encodeHex(byte[] bytes, char[] out, int offset) {
+        for (byte b : bytes) {
+            out[offset++] = HEX_DIGITS[(b >> 4) & 0xF];
+            out[offset++] = HEX_DIGITS[b & 0xF];
+        }
+    }
+
+    /**
+     * @param bytes The bytes to encode.
+     * @return The bytes as a lowercase hex string, encoded through a lookup table.
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        encodeHex(bytes, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * @param hex A string expected to hold a digest as hex, may be null.
+     * @param algorithm The algorithm of the digest.
+     * @return true if the string has the digest's length and only hex digits, in either case.
+     */
+    public static boolean isHex(CharSequence hex, Algorithm algorithm) {
+        if (hex == null || hex.length() != algorithm.length() * 2) {
+            return false;
+        }
+        for (int i = 0; i < hex.length(); i++) {
+            char c = hex.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a digest with a hex string, ignoring case, without allocating.
+     *
+     * @param bytes The digest.
+     * @param hex The expected digest as hex, may be null.
+     * @return true if both describe the same bytes.
+     */
+    public static boolean hexEquals(byte[] bytes, CharSequence hex) {
+        if (hex == null || hex.length() != bytes.length * 2) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (Character.toLowerCase(hex.charAt(2 * i)) != HEX_DIGITS[(bytes[i] >> 4) & 0xF]
+                    || Character.toLowerCase(hex.charAt(2 * i + 1)) != HEX_DIGITS[bytes[i] & 0xF]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
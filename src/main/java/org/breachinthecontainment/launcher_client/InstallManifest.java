@@ -0,0 +1,224 @@
+package org.breachinthecontainment.launcher_client;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Describes the files installed from a data.zip: the archive checksum it came from and the size
+ * and CRC32 of every file entry, along with its SHA-256 where it is known. Comparing the manifest
+ * of the installed tree with the manifest of a newer archive tells which entries have to be
+ * extracted or deleted.
+ */
+public class InstallManifest {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final Gson gson = new Gson();
+
+    private int formatVersion = FORMAT_VERSION;
+    private String archiveChecksum;
+    private Map<String, Entry> entries = new TreeMap<>();
+
+    /**
+     * Size and CRC32 of a single file entry, as recorded in the zip central directory, and the
+     * SHA-256 of its content if it is known.
+     */
+    public static class Entry {
+        private long size;
+        private long crc;
+        private String sha256;
+
+        public Entry(long size, long crc) {
+            this(size, crc, null);
+        }
+
+        /**
+         * @param sha256 The SHA-256 of the content as a lowercase hex string, may be null.
+         */
+        public Entry(long size, long crc, String sha256) {
+            this.size = size;
+            this.crc = crc;
+            this.sha256 = sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        /**
+         * @return The SHA-256 of the content as a lowercase hex string, or null if it is not known.
+         */
+        public String getSha256() {
+            return sha256;
+        }
+
+        boolean sameContent(Entry other) {
+            if (other == null || size != other.size || crc != other.crc) {
+                return false;
+            }
+            // Size and CRC32 can match for different contents, a known SHA-256 on both sides settles it
+            return sha256 == null || other.sha256 == null || sha256.equals(other.sha256);
+        }
+    }
+
+    /**
+     * Differences between an installed manifest and a newer one.
+     *
+     * @param changed Entries that are new or whose content changed, and have to be extracted.
+     * @param removed Entries that are no longer part of the archive, and have to be deleted.
+     */
+    public record Diff(Set<String> changed, Set<String> removed) {
+        public boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private InstallManifest() {
+    }
+
+    /**
+     * Builds the manifest of an archive from its central directory, without inflating anything.
+     *
+     * @param archive The zip file.
+     * @param archiveChecksum The SHA-256 of the zip file, used as its version.
+     * @return The manifest describing every file entry of the archive.
+     * @throws IOException If the archive cannot be read.
+     */
+    public static InstallManifest fromArchive(Path archive, String archiveChecksum) throws IOException {
+        InstallManifest manifest = new InstallManifest();
+        manifest.archiveChecksum = archiveChecksum;
+        try (ZipArchive zip = ZipArchive.open(archive)) {
+            for (ZipArchive.Entry entry : zip.entries()) {
+                // Patches only serve to produce other entries, they are not installed themselves
+                if (!entry.isDirectory() && !entry.name().startsWith(BinaryPatch.PATCH_DIR)) {
+                    manifest.entries.put(entry.name(), new Entry(entry.size(), entry.crc()));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Loads a manifest previously written with {@link #save(Path)}.
+     *
+     * @param file The manifest file.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The manifest, or null if it does not exist or cannot be read.
+     */
+    public static InstallManifest load(Path file, LauncherLogger logger) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file)) {
+            InstallManifest manifest = gson.fromJson(reader, InstallManifest.class);
+            if (manifest == null || manifest.formatVersion != FORMAT_VERSION || manifest.entries == null) {
+                logger.warn(Category.INSTALLER, "Ignoring install manifest with unsupported format: " + file);
+                return null;
+            }
+            // The hashes name objects in the store, so a malformed one is dropped rather than trusted
+            for (Entry entry : manifest.entries.values()) {
+                if (entry.sha256 != null) {
+                    entry.sha256 = HashEngine.isHex(entry.sha256, HashEngine.Algorithm.SHA256)
+                            ? entry.sha256.toLowerCase(Locale.ROOT) : null;
+                }
+            }
+            return manifest;
+        } catch (IOException | JsonParseException e) {
+            logger.warn(Category.INSTALLER, "Failed to read install manifest " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the manifest next to its final location and renames it into place, so a crash never
+     * leaves a truncated manifest behind.
+     *
+     * @param file The manifest file.
+     * @throws IOException If the manifest cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            gson.toJson(this, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Computes what has to change to turn an installation described by this manifest into one
+     * described by {@code target}.
+     *
+     * @param target The manifest of the archive being installed.
+     * @return The entries to extract and the entries to delete.
+     */
+    public Diff diff(InstallManifest target) {
+        Set<String> changed = new TreeSet<>();
+        for (Map.Entry<String, Entry> entry : target.entries.entrySet()) {
+            if (!entry.getValue().sameContent(entries.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        Set<String> removed = new TreeSet<>(entries.keySet());
+        removed.removeAll(target.entries.keySet());
+        return new Diff(changed, removed);
+    }
+
+    /**
+     * Returns a copy of this manifest that no longer lists some entries, so that diffing it against
+     * the full manifest schedules those entries for extraction again.
+     *
+     * @param names The entries to leave out.
+     * @return The reduced manifest.
+     */
+    public InstallManifest without(Set<String> names) {
+        InstallManifest copy = new InstallManifest();
+        copy.archiveChecksum = archiveChecksum;
+        copy.entries = new TreeMap<>(entries);
+        copy.entries.keySet().removeAll(names);
+        return copy;
+    }
+
+    /**
+     * Returns a copy of this manifest whose entries also carry the SHA-256 of their content where
+     * it is known. Entries that already carry one keep it.
+     *
+     * @param hashes Gives the SHA-256 of an entry name as hex, or null if it is not known.
+     * @return The completed manifest.
+     */
+    public InstallManifest withHashes(Function<String, String> hashes) {
+        InstallManifest copy = new InstallManifest();
+        copy.archiveChecksum = archiveChecksum;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            Entry known = entry.getValue();
+            String sha256 = known.sha256 == null ? hashes.apply(entry.getKey()) : null;
+            copy.entries.put(entry.getKey(), HashEngine.isHex(sha256, HashEngine.Algorithm.SHA256)
+                    ? new Entry(known.size, known.crc, sha256.toLowerCase(Locale.ROOT)) : known);
+        }
+        return copy;
+    }
+
+    public String getArchiveChecksum() {
+        return archiveChecksum;
+    }
+
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+}
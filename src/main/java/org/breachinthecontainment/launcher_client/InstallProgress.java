@@ -0,0 +1,176 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how far the installation got: the current phase, processed and total bytes and entries,
+ * the current throughput and the estimated time left.
+ * <p>
+ * Workers publish from any thread with cheap counter updates, and readers poll {@link #snapshot()}
+ * at their own pace, so a slow reader never holds back the installation. When a phase ends its
+ * totals and duration are logged, which shows where the installation time goes.
+ * <p>
+ * Readers can also ask the installation to stop with {@link #cancel()}; the installer checks for it
+ * between entries and chunks, and stops at the next check.
+ */
+public class InstallProgress {
+
+    // Weight of the latest measurement in the smoothed throughput
+    private static final double SMOOTHING = 0.3;
+    // Throughput is only measured over intervals at least this long, so frequent polling stays stable
+    private static final long MIN_SAMPLE_NANOS = 250_000_000L;
+
+    private final LauncherLogger logger;
+    private final LongAdder processedBytes = new LongAdder();
+    private final LongAdder processedEntries = new LongAdder();
+    private volatile String phase = "Preparing";
+    private volatile long totalBytes = -1;
+    private volatile long totalEntries = -1;
+    private volatile boolean cancelled;
+
+    // Throughput measurement, guarded by this
+    private long phaseStartNanos = System.nanoTime();
+    private long sampleNanos = phaseStartNanos;
+    private long sampleBytes;
+    private double bytesPerSecond;
+
+    /**
+     * A consistent view of the progress at one point in time.
+     *
+     * @param phase What the installation is currently doing.
+     * @param processedBytes Bytes processed in the current phase.
+     * @param totalBytes Bytes the current phase has to process, or -1 if unknown.
+     * @param processedEntries Entries processed in the current phase.
+     * @param totalEntries Entries the current phase has to process, or -1 if unknown.
+     * @param bytesPerSecond The smoothed throughput, or 0 until it has been measured.
+     * @param secondsLeft The estimated time left in the current phase, or -1 if unknown.
+     */
+    public record Snapshot(String phase, long processedBytes, long totalBytes, long processedEntries,
+                           long totalEntries, double bytesPerSecond, long secondsLeft) {
+        /**
+         * @return How much of the current phase is done, between 0 and 1, or -1 if the total is unknown.
+         */
+        public double fraction() {
+            return totalBytes > 0 ? Math.min(1.0, (double) processedBytes / totalBytes) : -1;
+        }
+    }
+
+    /**
+     * @param logger An instance of LauncherLogger the phase summaries are written to, may be null.
+     */
+    public InstallProgress(LauncherLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Ends the current phase and starts a new one with zeroed counters.
+     *
+     * @param phase A short description of the new phase, shown to the user.
+     * @param totalBytes The number of bytes the phase will process, or -1 if unknown.
+     * @param totalEntries The number of entries the phase will process, or -1 if unknown.
+     */
+    public synchronized void beginPhase(String phase, long totalBytes, long totalEntries) {
+        logPhaseSummary();
+        processedBytes.reset();
+        processedEntries.reset();
+        this.totalBytes = totalBytes;
+        this.totalEntries = totalEntries;
+        this.phase = phase;
+        phaseStartNanos = System.nanoTime();
+        sampleNanos = phaseStartNanos;
+        sampleBytes = 0;
+        bytesPerSecond = 0;
+    }
+
+    /**
+     * Ends the current phase without starting a new one.
+     *
+     * @param phase A short description of the final state, shown to the user.
+     */
+    public synchronized void finish(String phase) {
+        logPhaseSummary();
+        this.phase = phase;
+        this.totalBytes = -1;
+        this.totalEntries = -1;
+        processedBytes.reset();
+        processedEntries.reset();
+    }
+
+    /**
+     * Records processed bytes. Safe to call from several workers.
+     *
+     * @param bytes The number of bytes processed since the last call.
+     */
+    public void addBytes(long bytes) {
+        processedBytes.add(bytes);
+    }
+
+    /**
+     * Records processed entries. Safe to call from several workers.
+     *
+     * @param entries The number of entries processed since the last call.
+     */
+    public void addEntries(int entries) {
+        processedEntries.add(entries);
+    }
+
+    /**
+     * Asks the installation to stop as soon as possible. Whatever it extracted so far is journaled
+     * and reused by the next run.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true once {@link #cancel()} was called.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the calling worker if the installation was cancelled.
+     *
+     * @throws InterruptedIOException If {@link #cancel()} was called.
+     */
+    public void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Installation cancelled");
+        }
+    }
+
+    /**
+     * @return The current progress, with the throughput and time left estimated from recent samples.
+     */
+    public synchronized Snapshot snapshot() {
+        long now = System.nanoTime();
+        long bytes = processedBytes.sum();
+        long elapsed = now - sampleNanos;
+        if (elapsed >= MIN_SAMPLE_NANOS) {
+            double measured = (bytes - sampleBytes) * 1e9 / elapsed;
+            bytesPerSecond = bytesPerSecond == 0 ? measured : SMOOTHING * measured + (1 - SMOOTHING) * bytesPerSecond;
+            sampleNanos = now;
+            sampleBytes = bytes;
+        }
+
+        long total = totalBytes;
+        long secondsLeft = total > 0 && bytesPerSecond > 0 ? (long) Math.ceil(Math.max(0, total - bytes) / bytesPerSecond) : -1;
+        return new Snapshot(phase, bytes, total, processedEntries.sum(), totalEntries, bytesPerSecond, secondsLeft);
+    }
+
+    private void logPhaseSummary() {
+        long bytes = processedBytes.sum();
+        long entries = processedEntries.sum();
+        if (logger == null || (bytes == 0 && entries == 0)) {
+            return;
+        }
+        long millis = Math.max(1, (System.nanoTime() - phaseStartNanos) / 1_000_000);
+        double mibPerSecond = Math.round(bytes / 1048576.0 * 1000 / millis * 10) / 10.0;
+        logger.event(LauncherLogger.Level.INFO, Category.INSTALLER, "Phase finished.", "phase", phase,
+                "durationMs", millis, "bytes", bytes, "entries", entries, "mibPerSecond", mibPerSecond);
+    }
+}
@@ -0,0 +1,198 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks an installed tree against the size and CRC32 that the central directory of data.zip
+ * records for every entry. The tree is walked by a {@link TreeWalker}, which hands files to the
+ * workers of a fork-join pool in batches, so large and deep trees keep every core busy. Files are
+ * read through {@link HashEngine}'s pooled direct buffers, and CRC32 is hardware accelerated
+ * on current CPUs, which keeps a full check I/O bound.
+ * <p>
+ * In deep mode every file is also hashed with SHA-256 and compared with the hash the stat index
+ * recorded when it was installed.
+ */
+public class InstallVerifier {
+
+    private static final Set<HashEngine.Algorithm> CRC_ONLY = EnumSet.of(HashEngine.Algorithm.CRC32);
+    private static final Set<HashEngine.Algorithm> CRC_AND_SHA256 = EnumSet.of(HashEngine.Algorithm.CRC32, HashEngine.Algorithm.SHA256);
+
+    /**
+     * How thoroughly files are checked.
+     */
+    public enum Mode {
+        /** Size and CRC32 against the archive's central directory. */
+        CRC32,
+        /** Size and CRC32, plus SHA-256 against the hash recorded at install time. */
+        SHA256
+    }
+
+    /**
+     * The outcome of a verification, and of the repair that followed it if any.
+     *
+     * @param mode How the files were checked.
+     * @param checked The number of files read and checked.
+     * @param bytes The number of bytes read.
+     * @param missing Entries of the archive with no file in the tree.
+     * @param corrupt Entries whose file has the wrong size, CRC32 or SHA-256, or cannot be read.
+     * @param extra Files of the tree that are not part of the archive; they are reported, never deleted.
+     * @param repaired Damaged entries that were extracted again and now verify.
+     * @param unrepaired Damaged entries that still fail verification after a repair.
+     * @param verifyNanos Time spent verifying.
+     * @param repairNanos Time spent repairing, 0 if no repair was attempted.
+     */
+    public record Report(Mode mode, int checked, long bytes, Set<String> missing, Set<String> corrupt, Set<String> extra,
+                         Set<String> repaired, Set<String> unrepaired, long verifyNanos, long repairNanos) {
+
+        /**
+         * @return The entries that are missing or corrupt.
+         */
+        public Set<String> damaged() {
+            Set<String> damaged = new TreeSet<>(missing);
+            damaged.addAll(corrupt);
+            return damaged;
+        }
+
+        /**
+         * @return true if the tree matches the archive, either from the start or after its repair.
+         */
+        public boolean isIntact() {
+            return repairNanos > 0 ? unrepaired.isEmpty() : missing.isEmpty() && corrupt.isEmpty();
+        }
+
+        Report withRepair(Set<String> repaired, Set<String> unrepaired, long repairNanos) {
+            return new Report(mode, checked, bytes, missing, corrupt, extra, repaired, unrepaired, verifyNanos, repairNanos);
+        }
+
+        /**
+         * @return A one line summary of the verification and repair.
+         */
+        public String summary() {
+            String summary = "Verified " + checked + " files (" + bytes + " bytes, " + mode + ") in " + verifyNanos / 1_000_000
+                    + " ms: " + missing.size() + " missing, " + corrupt.size() + " corrupt, " + extra.size() + " extra.";
+            if (repairNanos > 0) {
+                summary += " Repaired " + repaired.size() + " in " + repairNanos / 1_000_000 + " ms, "
+                        + unrepaired.size() + " still damaged.";
+            }
+            return summary;
+        }
+    }
+
+    private final Map<String, InstallManifest.Entry> expected;
+    private final Mode mode;
+    private final StatIndex index;
+    private final LauncherLogger logger;
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private final Set<String> corrupt = ConcurrentHashMap.newKeySet();
+    private final Set<String> extra = ConcurrentHashMap.newKeySet();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong unreferenced = new AtomicLong();
+
+    private InstallVerifier(Map<String, InstallManifest.Entry> expected, Mode mode, StatIndex index, LauncherLogger logger) {
+        this.expected = expected;
+        this.mode = mode;
+        this.index = index;
+        this.logger = logger;
+    }
+
+    /**
+     * Verifies an installed tree.
+     *
+     * @param dataDir The data directory.
+     * @param manifest The manifest of the installed archive, holding the size and CRC32 of every entry.
+     * @param names The entries to check, or null to walk the whole tree and also report extra files.
+     * @param mode How thoroughly files are checked.
+     * @param index The stat index holding the install-time SHA-256 of the files for deep mode, may be null.
+     * @param parallelism The number of worker threads.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The report of the verification.
+     * @throws IOException If the walk fails.
+     */
+    public static Report verify(Path dataDir, InstallManifest manifest, Set<String> names, Mode mode, StatIndex index,
+                                int parallelism, LauncherLogger logger) throws IOException {
+        long start = System.nanoTime();
+        Path root = dataDir.toAbsolutePath().normalize();
+        InstallVerifier verifier = new InstallVerifier(manifest.getEntries(), mode, index, logger);
+
+        TreeWalker walker = new TreeWalker(root, new TreeWalker.Visitor() {
+            @Override
+            public void visit(String name, Path file, BasicFileAttributes attributes) {
+                verifier.check(name, file, attributes);
+            }
+
+            @Override
+            public void listFailed(Path directory, IOException e) {
+                // The files it holds are reported missing, so a repair extracts them again
+                logger.warn(Category.INSTALLER, "Failed to list " + directory + ": " + e.getMessage());
+            }
+        });
+        if (names == null) {
+            if (Files.isDirectory(root)) {
+                walker.walk(parallelism);
+            }
+        } else {
+            List<String> present = new ArrayList<>();
+            for (String name : names) {
+                if (manifest.getEntries().containsKey(name)) {
+                    present.add(name);
+                }
+            }
+            walker.visit(present, parallelism);
+        }
+
+        Set<String> missing = new TreeSet<>(names == null ? manifest.getEntries().keySet() : names);
+        missing.retainAll(manifest.getEntries().keySet());
+        missing.removeAll(verifier.seen);
+        if (mode == Mode.SHA256 && verifier.unreferenced.get() > 0) {
+            logger.info(Category.INSTALLER, verifier.unreferenced.get() + " files have no recorded SHA-256 and were only checked against their CRC32.");
+        }
+        return new Report(mode, (int) verifier.checked.get(), verifier.bytes.get(), Collections.unmodifiableSet(missing),
+                Collections.unmodifiableSet(new TreeSet<>(verifier.corrupt)), Collections.unmodifiableSet(new TreeSet<>(verifier.extra)),
+                Set.of(), Set.of(), System.nanoTime() - start, 0);
+    }
+
+    private void check(String name, Path file, BasicFileAttributes attributes) {
+        InstallManifest.Entry entry = expected.get(name);
+        if (entry == null) {
+            extra.add(name);
+            return;
+        }
+        // Missing files are found by comparing the seen entries with the archive
+        seen.add(name);
+        if (!attributes.isRegularFile() || attributes.size() != entry.getSize()) {
+            corrupt.add(name);
+            return;
+        }
+
+        String reference = mode == Mode.SHA256 && index != null ? index.hashOf(name) : null;
+        if (mode == Mode.SHA256 && reference == null) {
+            unreferenced.incrementAndGet();
+        }
+        try {
+            HashEngine.Digests digests = HashEngine.hash(file, reference != null ? CRC_AND_SHA256 : CRC_ONLY);
+            checked.incrementAndGet();
+            bytes.addAndGet(digests.size());
+            if (digests.crc32() != entry.getCrc() || (reference != null && !HashEngine.hexEquals(digests.sha256(), reference))) {
+                corrupt.add(name);
+            }
+        } catch (IOException e) {
+            logger.warn(Category.INSTALLER, "Failed to verify " + name + ": " + e.getMessage());
+            corrupt.add(name);
+        }
+    }
+}
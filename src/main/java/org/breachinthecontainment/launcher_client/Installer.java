@@ -1,27 +1,49 @@
 package org.breachinthecontainment.launcher_client;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 public class Installer {
 
     // The name of the data zip file expected inside the application's resources
     private static final String DATA_ZIP_RESOURCE_PATH = "/data.zip"; // Path within the bundled app resources
+    // Where the bundled archive is copied so it can be read with random access
+    private static final String CACHE_DIR_NAME = "cache";
+    private static final String DATA_ZIP_CACHE_NAME = "data.zip";
+    // Extraction happens in the staging directory and is moved to the data directory once verified
+    private static final String DATA_DIR_NAME = "data";
+    private static final String STAGING_DIR_NAME = "data.staging";
+    // Lists the entries already extracted to the staging directory, to resume after a crash
+    private static final String JOURNAL_NAME = "data.staging.journal";
+    // Content-addressed store the data directory files are hardlinked from
+    private static final String OBJECTS_DIR_NAME = "objects";
+    // Written once an installation is complete, lists every installed entry
+    private static final String MANIFEST_NAME = "install-manifest.json";
+    // Stat data and hashes of the installed files, so a warm start does not read them
+    private static final String STAT_INDEX_NAME = "install-index.bin";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
     /**
      * Checks if the data has already been extracted to the launcher directory.
-     * For simplicity, it checks if the launcher directory exists.
-     * A more robust check might involve a marker file (e.g., "installation_complete.txt")
-     * or checking for the presence of a critical game file within the launcher directory.
+     * An installation is complete once its install manifest has been written, which only happens
+     * after every entry has been extracted.
      *
      * @param dirPath The path to the launcher's base directory where data should be extracted.
      * @param logger An instance of LauncherLogger for file logging.
@@ -29,123 +51,636 @@ public class Installer {
      */
     public static boolean isDataExtracted(String dirPath, LauncherLogger logger) {
         Path launcherBasePath = Paths.get(dirPath);
-        boolean exists = Files.exists(launcherBasePath);
-        logger.log("isDataExtracted: Launcher base directory exists? " + exists);
-        // You could add more robust checks here, e.g.:
-        // Path markerFile = launcherBasePath.resolve("installation_complete.txt");
-        // return Files.exists(markerFile);
-        return exists; // Simple check for directory existence
+        boolean extracted = Files.exists(launcherBasePath.resolve(MANIFEST_NAME))
+                && Files.isDirectory(launcherBasePath.resolve(DATA_DIR_NAME));
+        logger.debug(Category.INSTALLER, "isDataExtracted: Install manifest and data directory present? {}", extracted);
+        return extracted;
     }
 
     /**
-     * Sets up the launcher environment by extracting the bundled data.zip.
-     * This method is called once at first launch or if data is missing.
+     * Sets up the launcher environment from the bundled data.zip.
+     * On first launch the whole archive is extracted. When an older version is installed, only the
+     * entries whose content changed are extracted and the entries that disappeared are deleted.
+     * Entries are always extracted to a staging directory first and journaled, so a run killed halfway
+     * resumes where it stopped and never leaves partially written files in the data directory.
+     * Extracted files are stored once in the object store and linked into the data directory.
+     * The archive is hashed while it is copied out of the application resources, and nothing is
+     * installed unless its SHA-256 matches {@link SumChecker#EXPECTED_CHECKSUM}. When a
+     * {@link MerkleManifest} is bundled, the chunks of the copy are also checked in parallel while it
+     * is written, so a damaged archive is rejected early, and a copy left behind by an interrupted run
+     * is checked chunk by chunk before it is reused.
+     * <p>
+     * On later starts the installed files are checked against the stat index, and only files whose
+     * size, modification time or inode changed are read again; missing or modified files are
+     * extracted again. The bundled archive is not hashed again while the launcher image is unchanged.
      *
      * @param outputDir The directory where files should be extracted.
      * @param logger An instance of LauncherLogger for file logging.
-     * @return true if setup is successful, false otherwise.
+     * @return The outcome of the setup.
      */
-    public static boolean setup(String outputDir, LauncherLogger logger) {
-        logger.log("Starting local setup process in directory: " + outputDir);
+    public static SetupResult setup(String outputDir, LauncherLogger logger) {
+        return setup(outputDir, logger, new InstallProgress(logger));
+    }
 
-        Path launcherDir = Paths.get(outputDir);
+    /**
+     * Sets up the launcher environment from the bundled data.zip, publishing its progress.
+     *
+     * @param outputDir The directory where files should be extracted.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @param progress Receives the progress of every phase of the setup.
+     * @return The outcome of the setup.
+     * @see #setup(String, LauncherLogger)
+     */
+    public static SetupResult setup(String outputDir, LauncherLogger logger, InstallProgress progress) {
+        logger.info(Category.INSTALLER, "Starting local setup process in directory: " + outputDir);
 
-        // If the directory already exists and data is considered extracted, skip extraction
-        if (isDataExtracted(outputDir, logger)) {
-            logger.log("Data already extracted to " + outputDir + ". Skipping extraction.");
-            return true;
-        }
+        Path launcherDir = Paths.get(outputDir);
+        Path manifestFile = launcherDir.resolve(MANIFEST_NAME);
+        Path dataSubdir = launcherDir.resolve(DATA_DIR_NAME);
+        Path archive = launcherDir.resolve(CACHE_DIR_NAME).resolve(DATA_ZIP_CACHE_NAME);
+        Path journalFile = launcherDir.resolve(JOURNAL_NAME);
+        Path indexFile = launcherDir.resolve(STAT_INDEX_NAME);
+        StatIndex.ImageStamp image = StatIndex.stampImage(DATA_ZIP_RESOURCE_PATH);
 
-        // Create the main launcher directory if it doesn't exist
         try {
+            InstallManifest installed = isDataExtracted(outputDir, logger) ? InstallManifest.load(manifestFile, logger) : null;
+            // An interrupted installation leaves its journal and the copied archive behind
+            String journaled = ExtractionJournal.readChecksum(journalFile);
+            boolean resumable = journaled != null && Files.exists(archive);
+
+            String checksum = null;
+            StatIndex index = null;
+            if (installed != null || resumable) {
+                index = installed != null ? StatIndex.load(indexFile, logger) : null;
+                if (installed != null && index == null) {
+                    index = StatIndex.empty(installed.getArchiveChecksum());
+                }
+                // An unchanged launcher image still bundles the archive it bundled when the index was saved
+                checksum = index != null ? index.archiveChecksumFor(image) : null;
+                if (checksum != null) {
+                    logger.info(Category.INSTALLER, "Launcher image unchanged, skipping the checksum of the bundled data.zip.");
+                } else {
+                    // Only hash the bundled archive; it is copied out again only if it is not already cached
+                    checksum = readResource(DATA_ZIP_RESOURCE_PATH, null, null, progress, logger);
+                }
+
+                if (installed != null && checksum.equalsIgnoreCase(installed.getArchiveChecksum())) {
+                    progress.beginPhase("Checking installed files", -1, installed.getEntries().size());
+                    StatIndex.Verification verification = index.verify(dataSubdir, installed, logger);
+                    if (verification.damaged().isEmpty()) {
+                        if (index.stampArchive(image, checksum) | verification.updated()) {
+                            index.save(indexFile);
+                        }
+                        logger.info(Category.INSTALLER, "Installed data matches the bundled data.zip. Skipping extraction.");
+                        progress.finish("Ready");
+                        return SetupResult.SUCCESS;
+                    }
+                    // Extract the damaged files again, as if they had changed in the archive
+                    progress.checkCancelled();
+                    logger.warn(Category.INSTALLER, "Repairing " + verification.damaged().size() + " missing or modified installed files.");
+                    evictModifiedObjects(launcherDir, installed, index, verification.damaged(), logger);
+                    installed = installed.without(verification.damaged());
+                }
+                if (!checksum.equalsIgnoreCase(SumChecker.EXPECTED_CHECKSUM)) {
+                    logger.error(Category.INSTALLER, "Checksum mismatch! Data integrity verification failed.");
+                    return SetupResult.CHECKSUM_MISMATCH;
+                }
+            }
+
+            // Create the main launcher directory if it doesn't exist
             if (!Files.exists(launcherDir)) {
-                logger.log("Creating launcher directory: " + launcherDir.toAbsolutePath());
+                logger.debug(Category.INSTALLER, "Creating launcher directory: {}", launcherDir.toAbsolutePath());
                 Files.createDirectories(launcherDir);
-                logger.log("Directory created successfully.");
+                logger.debug(Category.INSTALLER, "Directory created successfully.");
             } else {
-                logger.log("Launcher directory already exists: " + launcherDir.toAbsolutePath());
+                logger.debug(Category.INSTALLER, "Launcher directory already exists: {}", launcherDir.toAbsolutePath());
             }
 
-            // Extract the bundled data.zip from the application's resources
-            logger.log("Attempting to extract bundled data.zip from application resources.");
-            Path dataSubdir = Paths.get(outputDir, "data");
-            extractZipFromResources(DATA_ZIP_RESOURCE_PATH, dataSubdir.toString(), logger);
-            File extractedCheck = Paths.get(outputDir, "*.*").toFile();
-            if (extractedCheck.exists()) {
-                logger.log("Extraction verified. Found: " + extractedCheck.getAbsolutePath());
+            MerkleManifest merkle = loadMerkleManifest(SumChecker.EXPECTED_CHECKSUM, logger);
+            if (resumable && checksum.equalsIgnoreCase(journaled)
+                    && isCachedArchiveOf(archive, SumChecker.EXPECTED_CHECKSUM, merkle, progress, logger)) {
+                logger.info(Category.INSTALLER, "Reusing data.zip copied by the interrupted installation.");
             } else {
-                logger.log("Extraction MAY have failed — expected file not found.");
+                // Copy the bundled data.zip out of the application's resources, hashing it on the way
+                logger.debug(Category.INSTALLER, "Attempting to extract bundled data.zip from application resources.");
+                checksum = readResource(DATA_ZIP_RESOURCE_PATH, archive, merkle, progress, logger);
+                if (checksum != null) {
+                    logger.debug(Category.INSTALLER, "Calculated checksum for embedded data.zip: {}", checksum);
+                }
+
+                if (checksum == null || !checksum.equalsIgnoreCase(SumChecker.EXPECTED_CHECKSUM)) {
+                    logger.error(Category.INSTALLER, "Checksum mismatch! Data integrity verification failed.");
+                    Files.deleteIfExists(archive);
+                    return SetupResult.CHECKSUM_MISMATCH;
+                }
             }
-            return true;
 
+            progress.checkCancelled();
+            InstallManifest bundled = InstallManifest.fromArchive(archive, checksum);
+            if (merkle != null) {
+                bundled = bundled.withHashes(merkle.getEntryHashes()::get);
+            }
+            Path stagingDir = launcherDir.resolve(STAGING_DIR_NAME);
+            Set<String> extracted;
+            if (installed == null) {
+                extracted = bundled.getEntries().keySet();
+                extractToStaging(archive, stagingDir, journalFile, null, bundled, extracted, progress, logger);
+                if (Files.exists(dataSubdir)) {
+                    // Installed before manifests were written; files that did not come from data.zip are kept
+                    mergeDirectory(stagingDir, dataSubdir);
+                    deleteDirectory(stagingDir, logger);
+                } else {
+                    Files.move(stagingDir, dataSubdir, StandardCopyOption.ATOMIC_MOVE);
+                }
+                logger.info(Category.INSTALLER, "Committed extracted data to " + dataSubdir.toAbsolutePath());
+            } else {
+                // The index knows the SHA-256 of installed files, which finds their objects to patch
+                installed = installed.withHashes(index::hashOf);
+                InstallManifest.Diff diff = installed.diff(bundled);
+                extracted = diff.changed();
+                logger.info(Category.INSTALLER, "Updating installed data: " + diff.changed().size() + " entries to extract, "
+                        + diff.removed().size() + " entries to delete.");
+                extractToStaging(archive, stagingDir, journalFile, installed, bundled, diff.changed(), progress, logger);
+                deleteEntries(dataSubdir, diff.removed());
+                mergeDirectory(stagingDir, dataSubdir);
+                deleteDirectory(stagingDir, logger);
+                logger.info(Category.INSTALLER, "Committed " + diff.changed().size() + " updated entries to " + dataSubdir.toAbsolutePath());
+            }
+
+            // Index before the manifest: an index without a manifest is ignored, the opposite would be
+            // trusted with stale stat data
+            StatIndex.build(dataSubdir, bundled, extracted, installed != null ? index : null, image).save(indexFile);
+
+            // Writing the manifest last marks the installation as complete
+            bundled.save(manifestFile);
+            Files.deleteIfExists(journalFile);
+            logger.info(Category.INSTALLER, "Install manifest written for " + bundled.getEntries().size() + " entries.");
+            progress.finish("Ready");
+            return SetupResult.SUCCESS;
+
+        } catch (InterruptedIOException e) {
+            // The journal and the copied archive let the next run resume where this one stopped
+            logger.info(Category.INSTALLER, "Setup cancelled: " + e.getMessage());
+            return SetupResult.CANCELLED;
         } catch (IOException e) {
             String errorMessage = "Failed to extract bundled data.zip: " + e.getMessage();
             System.err.println(errorMessage);
-            logger.log(errorMessage);
-            return false;
+            logger.error(Category.INSTALLER, errorMessage);
+            return SetupResult.FAILURE;
         }
     }
 
     /**
-     * Extracts a zip file from the application's resources to a specified output directory.
+     * Verifies the installed data against the size and CRC32 the archive records for every entry,
+     * and optionally extracts the missing or corrupt entries again from the cached data.zip.
+     * Files that are not part of the archive are reported but left alone.
      *
-     * @param resourcePath The path to the zip file resource within the application's bundle (e.g., "/data.zip").
-     * @param outputDir The directory where the contents of the zip should be extracted.
+     * @param outputDir The launcher's base directory.
+     * @param repair Whether damaged entries should be extracted again.
+     * @param deep Whether files are also checked against the SHA-256 recorded when they were installed.
      * @param logger An instance of LauncherLogger for file logging.
-     * @throws IOException If an I/O error occurs during extraction.
+     * @return The report of what was checked, found and fixed.
+     * @throws IOException If there is no completed installation or the repair fails.
      */
-    private static void extractZipFromResources(String resourcePath, String outputDir, LauncherLogger logger) throws IOException {
-        logger.log("Attempting to load resource: " + resourcePath);
+    public static InstallVerifier.Report verifyAndRepair(String outputDir, boolean repair, boolean deep,
+                                                         LauncherLogger logger) throws IOException {
+        Path launcherDir = Paths.get(outputDir);
+        Path dataSubdir = launcherDir.resolve(DATA_DIR_NAME);
+        Path indexFile = launcherDir.resolve(STAT_INDEX_NAME);
+        Path journalFile = launcherDir.resolve(JOURNAL_NAME);
+        Path archive = launcherDir.resolve(CACHE_DIR_NAME).resolve(DATA_ZIP_CACHE_NAME);
 
-        InputStream stream = Installer.class.getResourceAsStream(resourcePath);
-        if (stream == null) {
-            logger.log("getResourceAsStream failed. Trying with ClassLoader...");
-            stream = Installer.class.getClassLoader().getResourceAsStream(resourcePath.startsWith("/") ? resourcePath.substring(1) : resourcePath);
+        InstallManifest installed = isDataExtracted(outputDir, logger)
+                ? InstallManifest.load(launcherDir.resolve(MANIFEST_NAME), logger) : null;
+        if (installed == null) {
+            throw new IOException("No completed installation to verify in " + launcherDir.toAbsolutePath());
         }
+        StatIndex index = StatIndex.load(indexFile, logger);
+        InstallVerifier.Mode mode = deep ? InstallVerifier.Mode.SHA256 : InstallVerifier.Mode.CRC32;
+        int parallelism = Runtime.getRuntime().availableProcessors();
 
-        if (stream == null) {
-            String error = "Resource not found: " + resourcePath + ". Ensure data.zip is inside src/main/resources.";
-            logger.log(error);
-            throw new IOException(error);
+        InstallVerifier.Report report = InstallVerifier.verify(dataSubdir, installed, null, mode, index, parallelism, logger);
+        logger.info(Category.INSTALLER, report.summary());
+        Set<String> damaged = report.damaged();
+        if (!repair || damaged.isEmpty()) {
+            return report;
         }
 
-        try (ZipInputStream zis = new ZipInputStream(stream)) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                Path newFilePath = Paths.get(outputDir, entry.getName());
-                logger.log("Extracting: " + entry.getName());
+        // An interrupted setup of another data.zip owns the journal, the staging directory and the
+        // cached archive, so repairing now would throw its progress away
+        String journaled = ExtractionJournal.readChecksum(journalFile);
+        if (journaled != null && !journaled.equalsIgnoreCase(installed.getArchiveChecksum())) {
+            throw new IOException("An interrupted installation of another data.zip is pending, run the setup to complete it instead of a repair.");
+        }
 
-                if (entry.isDirectory()) {
-                    Files.createDirectories(newFilePath);
-                    logger.log("Created directory: " + newFilePath.toAbsolutePath());
-                } else {
-                    Path parent = newFilePath.getParent();
-                    if (parent != null && !Files.exists(parent)) {
-                        Files.createDirectories(parent);
-                        logger.log("Created parent dir: " + parent.toAbsolutePath());
+        long start = System.nanoTime();
+        InstallProgress progress = new InstallProgress(logger);
+        MerkleManifest merkle = loadMerkleManifest(installed.getArchiveChecksum(), logger);
+        if (!isCachedArchiveOf(archive, installed.getArchiveChecksum(), merkle, progress, logger)) {
+            String checksum = readResource(DATA_ZIP_RESOURCE_PATH, archive, merkle, progress, logger);
+            if (checksum == null || !checksum.equalsIgnoreCase(installed.getArchiveChecksum())) {
+                Files.deleteIfExists(archive);
+                throw new IOException("The bundled data.zip is not the installed version, run the setup instead of a repair.");
+            }
+        }
+        evictModifiedObjects(launcherDir, installed, index, damaged, logger);
+
+        Path stagingDir = launcherDir.resolve(STAGING_DIR_NAME);
+        InstallManifest expected = merkle != null ? installed.withHashes(merkle.getEntryHashes()::get) : installed;
+        extractToStaging(archive, stagingDir, journalFile, null, expected, damaged, progress, logger);
+        mergeDirectory(stagingDir, dataSubdir);
+        deleteDirectory(stagingDir, logger);
+        Files.deleteIfExists(journalFile);
+        progress.finish("Repaired");
+
+        // Whatever still fails came from a damaged cached archive or could not be replaced
+        Set<String> unrepaired = InstallVerifier.verify(dataSubdir, installed, damaged, mode, index, parallelism, logger).damaged();
+        Set<String> repaired = new TreeSet<>(damaged);
+        repaired.removeAll(unrepaired);
+        if (index != null && index.verify(dataSubdir, installed, logger).updated()) {
+            index.save(indexFile);
+        }
+
+        report = report.withRepair(repaired, unrepaired, System.nanoTime() - start);
+        logger.info(Category.INSTALLER, report.summary());
+        return report;
+    }
+
+    /**
+     * Deletes the stored objects of damaged files that are still present and linked to them: a file
+     * modified in place also modified the object it is linked to, which must not be linked again.
+     * The object is found through the index, or through the SHA-256 the manifest records for files
+     * the index does not know. Without either, a file cannot be matched to an object and is skipped.
+     */
+    private static void evictModifiedObjects(Path launcherDir, InstallManifest installed, StatIndex index,
+                                             Set<String> damaged, LauncherLogger logger) throws IOException {
+        Path root = launcherDir.resolve(DATA_DIR_NAME).toAbsolutePath().normalize();
+        try (ObjectStore store = ObjectStore.open(launcherDir.resolve(OBJECTS_DIR_NAME), logger)) {
+            for (String name : damaged) {
+                Path file = ZipExtractor.resolve(root, name);
+                if (!Files.exists(file)) {
+                    continue;
+                }
+                String hash = index != null ? index.hashOf(name) : null;
+                if (hash == null) {
+                    InstallManifest.Entry entry = installed.getEntries().get(name);
+                    // A lookup already evicts an object whose content no longer matches its name
+                    hash = entry != null ? store.lookup(entry.getSha256()) : null;
+                }
+                Path object = hash != null ? store.objectPath(hash) : null;
+                if (object != null && Files.exists(object) && Files.isSameFile(file, object)) {
+                    store.evict(hash);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens the data.zip copied by {@link #setup(String, LauncherLogger)} for read-through access,
+     * so single entries can be read without going through the data directory.
+     *
+     * @param outputDir The launcher's base directory.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The opened archive, which must be closed.
+     * @throws IOException If setup has not copied the archive yet or it cannot be read.
+     */
+    public static DataArchive openDataArchive(String outputDir, LauncherLogger logger) throws IOException {
+        Path archive = Paths.get(outputDir).resolve(CACHE_DIR_NAME).resolve(DATA_ZIP_CACHE_NAME);
+        if (!Files.exists(archive)) {
+            throw new IOException("data.zip has not been copied to " + archive + " yet, run the setup first.");
+        }
+        return DataArchive.open(archive, logger);
+    }
+
+    /**
+     * Extracts entries into the staging directory, skipping those the journal of an interrupted run
+     * lists as completed. Every extracted entry is appended to the journal.
+     * When updating an installation, entries the archive ships a binary patch for are patched from
+     * their installed version first, and only extracted in full if patching fails.
+     *
+     * @param archive The copied data.zip.
+     * @param stagingDir The directory entries are extracted to.
+     * @param journalFile The extraction journal.
+     * @param installed The manifest of the installed data when updating it, or null for a full install.
+     * @param bundled The manifest of the archive, used to check the size of already staged files.
+     * @param names The names of the entries that have to end up in the staging directory.
+     * @param progress Receives the extraction progress.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @throws IOException If an entry cannot be extracted or the journal cannot be written.
+     */
+    private static void extractToStaging(Path archive, Path stagingDir, Path journalFile, InstallManifest installed,
+                                         InstallManifest bundled, Set<String> names, InstallProgress progress,
+                                         LauncherLogger logger) throws IOException {
+        try (ExtractionJournal journal = ExtractionJournal.open(journalFile, bundled.getArchiveChecksum(), logger)) {
+            Set<String> pending = new TreeSet<>(names);
+            if (journal.completed().isEmpty()) {
+                deleteDirectory(stagingDir, logger);
+            } else {
+                // A journaled entry is only trusted if its staged file still has the expected size
+                Path root = stagingDir.toAbsolutePath().normalize();
+                for (String name : journal.completed()) {
+                    Path staged = ZipExtractor.resolve(root, name);
+                    InstallManifest.Entry entry = bundled.getEntries().get(name);
+                    if (entry != null && Files.isRegularFile(staged) && Files.size(staged) == entry.getSize()) {
+                        pending.remove(name);
                     }
+                }
+                logger.info(Category.INSTALLER, "Skipping " + (names.size() - pending.size()) + " entries already staged.");
+            }
+            try (ObjectStore store = ObjectStore.open(stagingDir.resolveSibling(OBJECTS_DIR_NAME), logger)) {
+                if (installed != null) {
+                    applyPatches(archive, stagingDir, installed, bundled, pending, store, journal, progress, logger);
+                }
+                ZipExtractor.extract(archive, stagingDir, pending, store, bundled, entry -> journal.record(entry.name()), progress, logger);
+            }
+        }
+    }
 
-                    try (FileOutputStream fos = new FileOutputStream(newFilePath.toFile())) {
-                        byte[] buffer = new byte[1024];
-                        int length;
-                        while ((length = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, length);
+    /**
+     * Produces pending entries from their installed version and the binary patch shipped in the
+     * archive. An entry whose new version is already in the object store is linked from there
+     * without reading its patch. Otherwise the installed version is found in the object store by its
+     * SHA-256, and the patch only applies if its header names that object's SHA-256. Both lookups
+     * need the SHA-256 the manifests record; an entry without them is extracted in full. Patched
+     * and linked entries are removed from {@code pending}; an entry whose patch is missing, does not
+     * apply or produces a result that fails verification is left in it, to be extracted in full.
+     */
+    private static void applyPatches(Path archive, Path stagingDir, InstallManifest installed, InstallManifest bundled,
+                                     Set<String> pending, ObjectStore store, ExtractionJournal journal,
+                                     InstallProgress progress, LauncherLogger logger) throws IOException {
+        Path root = stagingDir.toAbsolutePath().normalize();
+        // Patches are streamed out of the archive, they never reach the data directory
+        try (DataArchive data = DataArchive.open(archive, logger)) {
+            Map<String, String> patches = new TreeMap<>();
+            long patchBytes = 0;
+            for (String name : pending) {
+                String patch = BinaryPatch.PATCH_DIR + name + BinaryPatch.PATCH_SUFFIX;
+                if (data.contains(patch) && installed.getEntries().containsKey(name)) {
+                    patches.put(name, patch);
+                    patchBytes += bundled.getEntries().get(name).getSize();
+                }
+            }
+            if (patches.isEmpty()) {
+                return;
+            }
+
+            progress.beginPhase("Patching game data", patchBytes, patches.size());
+            int applied = 0;
+            int linked = 0;
+            for (Map.Entry<String, String> patch : patches.entrySet()) {
+                progress.checkCancelled();
+                String name = patch.getKey();
+                InstallManifest.Entry from = installed.getEntries().get(name);
+                InstallManifest.Entry to = bundled.getEntries().get(name);
+                Path target = ZipExtractor.resolve(root, name);
+                String storedHash = store.lookup(to.getSha256());
+                String sourceHash = storedHash == null ? store.lookup(from.getSha256()) : null;
+                if (storedHash != null) {
+                    // An earlier installation or an interrupted run already produced this version
+                    Files.createDirectories(target.getParent());
+                    store.checkout(storedHash, target);
+                    journal.record(name);
+                    pending.remove(name);
+                    linked++;
+                } else if (sourceHash == null) {
+                    logger.warn(Category.INSTALLER, "No stored copy of the installed " + name + " to patch, extracting it in full.");
+                } else {
+                    Path temporary = store.newTemporaryFile();
+                    try (InputStream stream = data.open(patch.getValue())) {
+                        String targetHash = BinaryPatch.apply(store.objectPath(sourceHash), stream, temporary, sourceHash);
+                        boolean archived = to.getSha256() != null ? to.getSha256().equals(targetHash)
+                                : Files.size(temporary) == to.getSize() && crc32(temporary) == to.getCrc();
+                        if (!archived) {
+                            throw new IOException("patch does not produce the archived entry");
                         }
+                        store.add(temporary, targetHash);
+                        Files.createDirectories(target.getParent());
+                        store.checkout(targetHash, target);
+                        journal.record(name);
+                        pending.remove(name);
+                        applied++;
+                    } catch (IOException e) {
+                        Files.deleteIfExists(temporary);
+                        logger.warn(Category.INSTALLER, "Failed to patch " + name + " (" + e.getMessage() + "), extracting it in full.");
                     }
+                }
+                progress.addBytes(to.getSize());
+                progress.addEntries(1);
+            }
+            logger.info(Category.INSTALLER, "Patched " + applied + " and linked " + linked + " already stored of "
+                    + patches.size() + " entries shipped with a binary patch.");
+        }
+    }
 
-                    logger.log("Extracted file: " + newFilePath.toAbsolutePath());
+    private static long crc32(Path file) throws IOException {
+        return HashEngine.hash(file, EnumSet.of(HashEngine.Algorithm.CRC32)).crc32();
+    }
+
+    /**
+     * Deletes installed entries that are no longer part of the archive, along with the directories
+     * they leave empty.
+     */
+    private static void deleteEntries(Path dataSubdir, Set<String> names) throws IOException {
+        Path root = dataSubdir.toAbsolutePath().normalize();
+        for (String name : names) {
+            Path file = ZipExtractor.resolve(root, name);
+            Files.deleteIfExists(file);
+            for (Path parent = file.getParent(); parent != null && !parent.equals(root) && Files.isDirectory(parent); parent = parent.getParent()) {
+                try (Stream<Path> children = Files.list(parent)) {
+                    if (children.findAny().isPresent()) {
+                        break;
+                    }
                 }
+                Files.delete(parent);
+            }
+        }
+    }
 
-                zis.closeEntry();
+    /**
+     * Moves every file of the staging directory into the data directory, replacing existing files
+     * one rename at a time, and recreates the staged directory tree.
+     */
+    private static void mergeDirectory(Path stagingDir, Path dataSubdir) throws IOException {
+        try (Stream<Path> walk = Files.walk(stagingDir)) {
+            for (Path source : (Iterable<Path>) walk::iterator) {
+                Path target = dataSubdir.resolve(stagingDir.relativize(source).toString());
+                if (Files.isDirectory(source)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
             }
         }
     }
 
+    /**
+     * Reads a resource from the application's bundle once, computing its SHA-256 and optionally
+     * copying it to disk at the same time so the copy can be extracted with random access.
+     * When a Merkle manifest is given, the chunks of the copy are checked in the background while
+     * it is written, and the copy is abandoned at the first damaged chunk.
+     *
+     * @param resourcePath The path to the zip file resource within the application's bundle (e.g., "/data.zip").
+     * @param target The file the resource is copied to, or null to only hash it.
+     * @param merkle The Merkle manifest of the resource, may be null.
+     * @param progress Receives the number of bytes read.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The SHA-256 checksum of the resource as a hex string, or null if the copy was
+     *         abandoned because a chunk does not match the Merkle manifest.
+     * @throws IOException If the resource cannot be read or the copy cannot be written.
+     */
+    private static String readResource(String resourcePath, Path target, MerkleManifest merkle, InstallProgress progress,
+                                       LauncherLogger logger) throws IOException {
+        HashEngine.Hasher hasher = HashEngine.newHasher(EnumSet.of(HashEngine.Algorithm.SHA256));
+        progress.beginPhase(target == null ? "Verifying data.zip" : "Copying data.zip", resourceSize(resourcePath), 1);
+        try (InputStream stream = openResource(resourcePath, logger)) {
+            if (target != null) {
+                Files.createDirectories(target.getParent());
+            }
+            // Unbuffered, so every chunk the check is told about is already in the file
+            try (OutputStream out = target == null ? OutputStream.nullOutputStream() : Files.newOutputStream(target);
+                 MerkleManifest.CopyCheck check = target == null || merkle == null ? null
+                         : merkle.checkCopy(target, Runtime.getRuntime().availableProcessors())) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                long size = 0;
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    progress.checkCancelled();
+                    hasher.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                    progress.addBytes(read);
+                    if (check != null && !check.written(read)) {
+                        logger.warn(Category.INSTALLER, "Stopped copying " + resourcePath + " at byte " + size + ": it does not match its Merkle manifest.");
+                        return null;
+                    }
+                }
+                if (check != null) {
+                    List<MerkleManifest.Chunk> damaged = check.finish();
+                    if (!damaged.isEmpty()) {
+                        logger.warn(Category.INSTALLER, "Copied " + resourcePath + " does not match its Merkle manifest, first damaged " + damaged.get(0) + ".");
+                        return null;
+                    }
+                }
+                if (target != null) {
+                    logger.event(LauncherLogger.Level.INFO, Category.INSTALLER, "Copied " + resourcePath + " to " + target.toAbsolutePath() + ".",
+                            "bytes", size);
+                }
+            }
+        }
+        progress.addEntries(1);
+        return hasher.finish().hex(HashEngine.Algorithm.SHA256);
+    }
+
+    /**
+     * Loads the bundled Merkle manifest, provided it describes the expected archive.
+     *
+     * @param checksum The SHA-256 the archive is trusted to have; the manifest is only as trusted as this checksum.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The manifest, or null if none is bundled or it describes another archive.
+     */
+    private static MerkleManifest loadMerkleManifest(String checksum, LauncherLogger logger) {
+        MerkleManifest merkle = MerkleManifest.loadResource(logger);
+        if (merkle != null && !merkle.getArchiveChecksum().equalsIgnoreCase(checksum)) {
+            logger.warn(Category.INSTALLER, "Ignoring the Merkle manifest of another data.zip: " + merkle.getArchiveChecksum());
+            return null;
+        }
+        return merkle;
+    }
+
+    /**
+     * Checks the data.zip left in the cache by an earlier run against the Merkle manifest, hashing
+     * its chunks in parallel rather than the whole file in sequence.
+     *
+     * @return true if the cached copy can be used.
+     */
+    private static boolean isCachedArchiveIntact(Path archive, MerkleManifest merkle, InstallProgress progress,
+                                                 LauncherLogger logger) throws IOException {
+        progress.beginPhase("Verifying cached data.zip", merkle.getSize(), 1);
+        List<MerkleManifest.Chunk> damaged = merkle.verify(archive, Runtime.getRuntime().availableProcessors(), progress, logger);
+        progress.addEntries(1);
+        if (!damaged.isEmpty()) {
+            logger.warn(Category.INSTALLER, "Cached data.zip has " + damaged.size() + " damaged chunks, copying it again.");
+            Files.deleteIfExists(archive);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the data.zip left in the cache is the given version before it is extracted from
+     * again: chunk by chunk against the Merkle manifest of that version when there is one, by the
+     * SHA-256 of the whole file otherwise. A copy of another version or a damaged one is deleted.
+     *
+     * @param checksum The SHA-256 of the expected data.zip.
+     * @param merkle The Merkle manifest of that data.zip, may be null.
+     * @return true if the cached copy exists and is that version.
+     */
+    private static boolean isCachedArchiveOf(Path archive, String checksum, MerkleManifest merkle,
+                                             InstallProgress progress, LauncherLogger logger) throws IOException {
+        if (!Files.exists(archive)) {
+            return false;
+        }
+        if (merkle != null) {
+            return isCachedArchiveIntact(archive, merkle, progress, logger);
+        }
+        progress.beginPhase("Verifying cached data.zip", Files.size(archive), 1);
+        byte[] actual = HashEngine.hash(archive, 0, Long.MAX_VALUE, EnumSet.of(HashEngine.Algorithm.SHA256), progress).sha256();
+        progress.addEntries(1);
+        if (!HashEngine.hexEquals(actual, checksum)) {
+            logger.warn(Category.INSTALLER, "Cached data.zip is not the expected version, copying it again.");
+            Files.deleteIfExists(archive);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Looks up the size of a bundled resource without reading it.
+     *
+     * @param resourcePath The path to the resource within the application's bundle.
+     * @return The size in bytes, or -1 if it cannot be determined.
+     */
+    private static long resourceSize(String resourcePath) {
+        URL url = Installer.class.getResource(resourcePath);
+        if (url == null) {
+            return -1;
+        }
+        try {
+            return url.openConnection().getContentLengthLong();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Opens a resource bundled with the application.
+     *
+     * @param resourcePath The path to the resource within the application's bundle (e.g., "/data.zip").
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return An open stream over the resource.
+     * @throws IOException If the resource cannot be found.
+     */
+    private static InputStream openResource(String resourcePath, LauncherLogger logger) throws IOException {
+        logger.debug(Category.INSTALLER, "Attempting to load resource: {}", resourcePath);
+
+        InputStream stream = Installer.class.getResourceAsStream(resourcePath);
+        if (stream == null) {
+            logger.debug(Category.INSTALLER, "getResourceAsStream failed. Trying with ClassLoader...");
+            stream = Installer.class.getClassLoader().getResourceAsStream(resourcePath.startsWith("/") ? resourcePath.substring(1) : resourcePath);
+        }
+
+        if (stream == null) {
+            String error = "Resource not found: " + resourcePath + ". Ensure data.zip is inside src/main/resources.";
+            logger.error(Category.INSTALLER, error);
+            throw new IOException(error);
+        }
+        return stream;
+    }
+
 
     /**
      * Deletes a directory and all its contents recursively.
-     * This is a utility method that might be useful for cleanup, though not directly
-     * used in the simplified jpackage setup for initial extraction.
+     * Used to clear leftovers of an interrupted extraction before a new one starts.
      *
      * @param directory The path to the directory to delete.
      * @param logger An instance of LauncherLogger for file logging.
@@ -160,9 +695,9 @@ public class Installer {
                     .forEach(path -> {
                         try {
                             Files.delete(path);
-                            logger.log("Deleted: " + path.toAbsolutePath());
+                            logger.trace(Category.INSTALLER, () -> "Deleted: " + path.toAbsolutePath());
                         } catch (IOException e) {
-                            logger.log("Failed to delete " + path.toAbsolutePath() + ": " + e.getMessage());
+                            logger.warn(Category.INSTALLER, "Failed to delete " + path.toAbsolutePath() + ": " + e.getMessage());
                             System.err.println("Failed to delete " + path.toAbsolutePath() + ": " + e.getMessage());
                         }
                     });
@@ -0,0 +1,129 @@
+package org.breachinthecontainment.launcher_client;
+
+/**
+ * Writes JSON objects, one per line, into a reusable buffer. Names and values are appended
+ * directly, escaping strings as they are copied, so encoding a field allocates nothing beyond the
+ * growth of the buffer.
+ */
+final class JsonLineEncoder {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder out;
+    private boolean firstField;
+
+    /**
+     * @param initialCapacity The initial size of the buffer in characters.
+     */
+    JsonLineEncoder(int initialCapacity) {
+        out = new StringBuilder(initialCapacity);
+    }
+
+    /**
+     * Starts an object.
+     */
+    void begin() {
+        out.append('{');
+        firstField = true;
+    }
+
+    /**
+     * Ends the current object and its line.
+     */
+    void end() {
+        out.append("}\n");
+    }
+
+    void field(String name, long value) {
+        name(name);
+        out.append(value);
+    }
+
+    void field(String name, double value) {
+        name(name);
+        if (Double.isFinite(value)) {
+            out.append(value);
+        } else {
+            out.append("null");
+        }
+    }
+
+    void field(String name, boolean value) {
+        name(name);
+        out.append(value);
+    }
+
+    void field(String name, CharSequence value) {
+        name(name);
+        string(value);
+    }
+
+    /**
+     * Writes integral numbers and booleans as such, other numbers as doubles and anything else as
+     * the string of its {@link String#valueOf(Object)}.
+     */
+    void field(String name, Object value) {
+        switch (value) {
+            case null -> {
+                name(name);
+                out.append("null");
+            }
+            case Long number -> field(name, number.longValue());
+            case Integer number -> field(name, number.longValue());
+            case Short number -> field(name, number.longValue());
+            case Byte number -> field(name, number.longValue());
+            case Number number -> field(name, number.doubleValue());
+            case Boolean bool -> field(name, bool.booleanValue());
+            case CharSequence text -> field(name, text);
+            default -> field(name, String.valueOf(value));
+        }
+    }
+
+    /**
+     * @return The encoded lines since the last {@link #clear()}.
+     */
+    CharSequence text() {
+        return out;
+    }
+
+    int length() {
+        return out.length();
+    }
+
+    void clear() {
+        out.setLength(0);
+    }
+
+    private void name(String name) {
+        if (!firstField) {
+            out.append(',');
+        }
+        firstField = false;
+        string(name);
+        out.append(':');
+    }
+
+    private void string(CharSequence value) {
+        out.append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,66 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.IOException;
+
+/**
+ * The machine-readable log: one JSON object per line, such as
+ * {@code {"ts":1760000000123456789,"level":"INFO","category":"installer","thread":"main","msg":"...","bytes":1024}},
+ * with the timestamp in nanoseconds since the epoch followed by the message's own fields.
+ */
+final class JsonLogSink implements LogSink {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final RollingLogFile file;
+    private final JsonLineEncoder encoder = new JsonLineEncoder(INITIAL_CAPACITY);
+
+    /**
+     * @param file The file to write to; the sink closes it.
+     */
+    JsonLogSink(RollingLogFile file) {
+        this.file = file;
+    }
+
+    @Override
+    public void append(LauncherLogger.Message message) {
+        encoder.begin();
+        encoder.field("ts", message.epochNanos());
+        encoder.field("level", message.level().name());
+        encoder.field("category", message.category().label());
+        encoder.field("thread", message.thread());
+        encoder.field("msg", message.text());
+        Object[] fields = message.fields();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            encoder.field(String.valueOf(fields[i]), fields[i + 1]);
+        }
+        encoder.end();
+    }
+
+    @Override
+    public int pending() {
+        return encoder.length();
+    }
+
+    @Override
+    public void flush() {
+        if (encoder.length() == 0) {
+            return;
+        }
+        try {
+            file.write(encoder.text());
+        } catch (IOException e) {
+            System.err.println("Failed to write to log file " + file.path() + ": " + e.getMessage());
+        }
+        encoder.clear();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close log file " + file.path() + ": " + e.getMessage());
+        }
+    }
+}
@@ -1,23 +1,128 @@
 package org.breachinthecontainment.launcher_client;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
  * A simple logging utility for the launcher.
  * Writes timestamped messages to a log file within the launcher's logs directory.
+ * <p>
+ * Logging is asynchronous: {@link #log(String)} only publishes the message into a bounded lock-free
+ * ring buffer, and a background writer formats and writes messages in batches, flushing the file
+ * once a batch is large enough or a short interval has passed. What happens when the buffer is
+ * full is decided by the {@link OverflowPolicy}. {@link #close()}, also run by a shutdown hook,
+ * writes every message published before it.
+ * <p>
+ * The log file rolls over once it would grow past a size limit and when the day changes; rolled
+ * files are gzipped in the background and only the most recent ones are kept, see {@link Rotation}.
+ * <p>
+ * Every message has a {@link Level} and a {@link Category}, and each category has a threshold below
+ * which its messages are discarded before they are built: the {@link Supplier} and parameterized
+ * overloads only build the text of enabled messages. The one and two argument overloads do not
+ * allocate an argument array either, but primitive arguments are still boxed by the caller, as are
+ * the fields of {@link #event(Level, Category, String, Object...)}; hot paths guard such calls with
+ * {@link #isEnabled(Level, Category)}. Thresholds come from the {@value #LEVEL_PROPERTY}
+ * system property, such as {@code info,installer=trace}, and can be changed with
+ * {@link #setLevel(Category, Level)}.
+ * <p>
+ * Messages go to {@code launcher.log} in a human-readable form and, when the {@value #JSON_PROPERTY}
+ * system property is true, also to {@code launcher.jsonl} as one JSON object per line with a
+ * nanosecond timestamp, the thread, the category and the fields passed to
+ * {@link #event(Level, Category, String, Object...)}.
  */
 public class LauncherLogger {
 
-    private final File logFile;
-    private PrintWriter writer;
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /**
+     * What {@link #log(String)} does when the writer falls behind and the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** Wait until the writer frees room; nothing is lost, but the caller may stall. */
+        BLOCK,
+        /** Discard the message; the number of discarded messages is logged once there is room. */
+        DROP,
+        /** Queue the message outside the buffer; nothing is lost and the caller never waits. */
+        SPILL
+    }
+
+    /**
+     * When the log file is rolled over and how many rolled files are kept.
+     *
+     * @param maxBytes The size the log file is rolled over at.
+     * @param daily Whether the log file is also rolled over when the day changes.
+     * @param retainedFiles The number of rolled files kept; older ones are deleted.
+     */
+    public record Rotation(long maxBytes, boolean daily, int retainedFiles) {
+        public static final Rotation DEFAULT = new Rotation(10L * 1024 * 1024, true, 10);
+    }
+
+    /**
+     * Severity of a message, from the most verbose to the most severe.
+     */
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR
+    }
+
+    /**
+     * The part of the launcher a message comes from; each has its own threshold.
+     */
+    public enum Category {
+        LAUNCHER, INSTALLER, AUTH, HTTP, UI;
+
+        private final String label = name().toLowerCase(Locale.ROOT);
+
+        String label() {
+            return label;
+        }
+    }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final String LEVEL_PROPERTY = "launcher.log.level";
+    public static final String JSON_PROPERTY = "launcher.log.json";
+    public static final Level DEFAULT_LEVEL = Level.INFO;
+
+    // A batch is flushed once it holds this many characters, or when the interval has passed
+    private static final int FLUSH_CHARS = 64 * 1024;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    // How long a blocked caller waits before checking for room again
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final Object[] NO_FIELDS = new Object[0];
+
+    /**
+     * A logged message as handed to the sinks.
+     *
+     * @param epochNanos When it was logged, in nanoseconds since the epoch.
+     * @param thread The name of the logging thread.
+     * @param fields Names and values, alternating; empty for plain messages.
+     */
+    record Message(long epochNanos, Level level, Category category, String thread, String text, Object[] fields) {
+    }
+
+    private final OverflowPolicy policy;
+    private final LogRingBuffer<Message> buffer;
+    private final Queue<Message> spilled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean closeRequested = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Lowest enabled level of each category by ordinal, replaced as a whole when a threshold changes
+    private volatile Level[] thresholds;
+    // Iterated by the writer thread; a tail can be added while it runs
+    private final List<LogSink> sinks = new CopyOnWriteArrayList<>();
+    private Thread writerThread;
+    private volatile boolean writerIdle;
 
     /**
      * Initializes the logger.
@@ -26,6 +131,33 @@ public class LauncherLogger {
      * @param launcherDirectory The base directory of the launcher.
      */
     public LauncherLogger(String launcherDirectory) {
+        this(launcherDirectory, OverflowPolicy.SPILL, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes the logger with an explicit buffer size and overflow policy.
+     *
+     * @param launcherDirectory The base directory of the launcher.
+     * @param policy What to do with messages published while the buffer is full.
+     * @param capacity The number of messages the buffer holds, rounded up to a power of two.
+     */
+    public LauncherLogger(String launcherDirectory, OverflowPolicy policy, int capacity) {
+        this(launcherDirectory, policy, capacity, Rotation.DEFAULT);
+    }
+
+    /**
+     * Initializes the logger with an explicit buffer size, overflow policy and rotation.
+     *
+     * @param launcherDirectory The base directory of the launcher.
+     * @param policy What to do with messages published while the buffer is full.
+     * @param capacity The number of messages the buffer holds, rounded up to a power of two.
+     * @param rotation When the log file is rolled over and how many rolled files are kept.
+     */
+    public LauncherLogger(String launcherDirectory, OverflowPolicy policy, int capacity, Rotation rotation) {
+        this.policy = policy;
+        this.buffer = new LogRingBuffer<>(capacity);
+        this.thresholds = parseThresholds(System.getProperty(LEVEL_PROPERTY));
+
         // Define the path for the logs directory
         File logsDir = Paths.get(launcherDirectory, "logs").toFile();
         if (!logsDir.exists()) {
@@ -37,46 +169,462 @@ public class LauncherLogger {
             }
         }
 
-        // Define the path for the log file
-        this.logFile = Paths.get(logsDir.getAbsolutePath(), "launcher.log").toFile();
-
         try {
-            // Initialize a PrintWriter to write to the log file, appending to it if it exists
-            this.writer = new PrintWriter(new BufferedWriter(new FileWriter(logFile, true)));
-            log("LauncherLogger initialized."); // Log initialization
+            // Open the log file for appending; the writer thread is the only one writing to it
+            sinks.add(new TextLogSink(new RollingLogFile(logsDir.toPath(), "launcher", ".log", rotation)));
         } catch (IOException e) {
             System.err.println("Failed to initialize LauncherLogger: " + e.getMessage());
             e.printStackTrace();
             // If logger cannot be initialized, further log calls will silently fail or print to console
+            return;
         }
+        if (Boolean.getBoolean(JSON_PROPERTY)) {
+            try {
+                sinks.add(new JsonLogSink(new RollingLogFile(logsDir.toPath(), "launcher", ".jsonl", rotation)));
+            } catch (IOException e) {
+                // The human-readable log is enough to go on
+                System.err.println("Failed to open the JSON log: " + e.getMessage());
+            }
+        }
+
+        writerThread = new Thread(this::drainLoop, "launcher-logger");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        // Messages still buffered when the JVM exits are written before it goes
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "launcher-logger-shutdown"));
+        log("LauncherLogger initialized."); // Log initialization
     }
 
     /**
-     * Logs a message with a timestamp to the log file.
+     * Reads thresholds such as {@code info,installer=trace,http=debug}: a bare level applies to every
+     * category, a {@code category=level} pair to one. Unknown names are reported and skipped.
+     *
+     * @param spec The thresholds, may be null.
+     * @return The threshold of each category by ordinal.
+     */
+    private static Level[] parseThresholds(String spec) {
+        Level[] levels = new Level[Category.values().length];
+        Arrays.fill(levels, DEFAULT_LEVEL);
+        if (spec == null || spec.isBlank()) {
+            return levels;
+        }
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=", 2);
+            try {
+                Level level = Level.valueOf(pair[pair.length - 1].trim().toUpperCase(Locale.ROOT));
+                if (pair.length == 1) {
+                    Arrays.fill(levels, level);
+                } else {
+                    levels[Category.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = level;
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring invalid log threshold '" + part.trim() + "' in " + LEVEL_PROPERTY);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Sets the lowest level logged for a category.
+     *
+     * @param category The category.
+     * @param level The threshold; messages below it are discarded.
+     */
+    public synchronized void setLevel(Category category, Level level) {
+        Level[] levels = thresholds.clone();
+        levels[category.ordinal()] = level;
+        thresholds = levels;
+    }
+
+    /**
+     * @param category The category.
+     * @return The lowest level logged for the category.
+     */
+    public Level getLevel(Category category) {
+        return thresholds[category.ordinal()];
+    }
+
+    /**
+     * Tells whether messages of a level would be logged in a category, to guard expensive logging.
+     *
+     * @param level The level of the message.
+     * @param category The category of the message.
+     * @return true if the message would be logged.
+     */
+    public boolean isEnabled(Level level, Category category) {
+        return level.compareTo(thresholds[category.ordinal()]) >= 0;
+    }
+
+    /**
+     * Logs a message with a timestamp to the log file, at {@link Level#INFO} in {@link Category#LAUNCHER}.
+     * Returns as soon as the message is queued; it is written shortly after by the writer thread.
      *
      * @param message The message to log.
      */
     public void log(String message) {
-        if (writer != null) {
-            String timestamp = LocalDateTime.now().format(DATE_TIME_FORMATTER);
-            String logEntry = String.format("[%s] %s", timestamp, message);
-            writer.println(logEntry);
-            writer.flush(); // Flush immediately to ensure messages are written to disk
-            System.out.println(logEntry); // Also print to console for immediate feedback
-        } else {
+        log(Level.INFO, Category.LAUNCHER, message);
+    }
+
+    /**
+     * Logs a message if its level is enabled in its category.
+     *
+     * @param level The level of the message.
+     * @param category The category of the message.
+     * @param message The message to log.
+     */
+    public void log(Level level, Category category, String message) {
+        if (isEnabled(level, category)) {
+            publish(level, category, message, NO_FIELDS);
+        }
+    }
+
+    /**
+     * Logs a message built only if its level is enabled in its category.
+     *
+     * @param level The level of the message.
+     * @param category The category of the message.
+     * @param message Builds the message to log.
+     */
+    public void log(Level level, Category category, Supplier<String> message) {
+        if (isEnabled(level, category)) {
+            publish(level, category, message.get(), NO_FIELDS);
+        }
+    }
+
+    /**
+     * Logs a message whose {@code {}} placeholder is replaced by the argument, only if its level is
+     * enabled in its category.
+     *
+     * @param level The level of the message.
+     * @param category The category of the message.
+     * @param pattern The message with a {@code {}} for the argument.
+     * @param argument The argument, formatted with {@link String#valueOf(Object)}.
+     */
+    public void log(Level level, Category category, String pattern, Object argument) {
+        if (isEnabled(level, category)) {
+            publish(level, category, substitute(pattern, new Object[]{argument}), NO_FIELDS);
+        }
+    }
+
+    /**
+     * Logs a message whose two {@code {}} placeholders are replaced by the arguments, in order, only
+     * if its level is enabled in its category.
+     *
+     * @param level The level of the message.
+     * @param category The category of the message.
+     * @param pattern The message with a {@code {}} per argument.
+     * @param first The first argument, formatted with {@link String#valueOf(Object)}.
+     * @param second The second argument.
+     */
+    public void log(Level level, Category category, String pattern, Object first, Object second) {
+        if (isEnabled(level, category)) {
+            publish(level, category, substitute(pattern, new Object[]{first, second}), NO_FIELDS);
+        }
+    }
+
+    /**
+     * Logs a message whose {@code {}} placeholders are replaced by the arguments, in order, only if
+     * its level is enabled in its category.
+     *
+     * @param level The level of the message.
+     * @param category The category of the message.
+     * @param pattern The message with a {@code {}} per argument.
+     * @param arguments The arguments, formatted with {@link String#valueOf(Object)}.
+     */
+    public void log(Level level, Category category, String pattern, Object... arguments) {
+        if (isEnabled(level, category)) {
+            publish(level, category, substitute(pattern, arguments), NO_FIELDS);
+        }
+    }
+
+    /**
+     * Logs a message with named values, such as {@code event(Level.INFO, Category.INSTALLER,
+     * "Copied data.zip", "bytes", size, "durationMs", millis)}. The text log appends them as
+     * {@code name=value}; the JSON log writes them as fields, numbers and booleans unquoted.
+     *
+     * @param level The level of the message.
+     * @param category The category of the message.
+     * @param message The message to log.
+     * @param fields Names and values, alternating.
+     */
+    public void event(Level level, Category category, String message, Object... fields) {
+        if (isEnabled(level, category)) {
+            publish(level, category, message, fields);
+        }
+    }
+
+    public void trace(Category category, String message) {
+        log(Level.TRACE, category, message);
+    }
+
+    public void trace(Category category, Supplier<String> message) {
+        log(Level.TRACE, category, message);
+    }
+
+    public void trace(Category category, String pattern, Object argument) {
+        log(Level.TRACE, category, pattern, argument);
+    }
+
+    public void trace(Category category, String pattern, Object first, Object second) {
+        log(Level.TRACE, category, pattern, first, second);
+    }
+
+    public void trace(Category category, String pattern, Object... arguments) {
+        log(Level.TRACE, category, pattern, arguments);
+    }
+
+    public void debug(Category category, String message) {
+        log(Level.DEBUG, category, message);
+    }
+
+    public void debug(Category category, Supplier<String> message) {
+        log(Level.DEBUG, category, message);
+    }
+
+    public void debug(Category category, String pattern, Object argument) {
+        log(Level.DEBUG, category, pattern, argument);
+    }
+
+    public void debug(Category category, String pattern, Object first, Object second) {
+        log(Level.DEBUG, category, pattern, first, second);
+    }
+
+    public void debug(Category category, String pattern, Object... arguments) {
+        log(Level.DEBUG, category, pattern, arguments);
+    }
+
+    public void info(Category category, String message) {
+        log(Level.INFO, category, message);
+    }
+
+    public void info(Category category, Supplier<String> message) {
+        log(Level.INFO, category, message);
+    }
+
+    public void info(Category category, String pattern, Object argument) {
+        log(Level.INFO, category, pattern, argument);
+    }
+
+    public void info(Category category, String pattern, Object first, Object second) {
+        log(Level.INFO, category, pattern, first, second);
+    }
+
+    public void info(Category category, String pattern, Object... arguments) {
+        log(Level.INFO, category, pattern, arguments);
+    }
+
+    public void warn(Category category, String message) {
+        log(Level.WARN, category, message);
+    }
+
+    public void warn(Category category, Supplier<String> message) {
+        log(Level.WARN, category, message);
+    }
+
+    public void warn(Category category, String pattern, Object argument) {
+        log(Level.WARN, category, pattern, argument);
+    }
+
+    public void warn(Category category, String pattern, Object first, Object second) {
+        log(Level.WARN, category, pattern, first, second);
+    }
+
+    public void warn(Category category, String pattern, Object... arguments) {
+        log(Level.WARN, category, pattern, arguments);
+    }
+
+    public void error(Category category, String message) {
+        log(Level.ERROR, category, message);
+    }
+
+    public void error(Category category, Supplier<String> message) {
+        log(Level.ERROR, category, message);
+    }
+
+    public void error(Category category, String pattern, Object argument) {
+        log(Level.ERROR, category, pattern, argument);
+    }
+
+    public void error(Category category, String pattern, Object first, Object second) {
+        log(Level.ERROR, category, pattern, first, second);
+    }
+
+    public void error(Category category, String pattern, Object... arguments) {
+        log(Level.ERROR, category, pattern, arguments);
+    }
+
+    private static String substitute(String pattern, Object[] arguments) {
+        StringBuilder text = new StringBuilder(pattern.length() + 16 * arguments.length);
+        int start = 0;
+        for (Object argument : arguments) {
+            int placeholder = pattern.indexOf("{}", start);
+            if (placeholder < 0) {
+                break;
+            }
+            text.append(pattern, start, placeholder).append(argument);
+            start = placeholder + 2;
+        }
+        return text.append(pattern, start, pattern.length()).toString();
+    }
+
+    private void publish(Level level, Category category, String message, Object[] fields) {
+        if (writerThread == null) {
             System.err.println("Logger not initialized. Could not log: " + message);
+            return;
+        }
+        Message entry = new Message(epochNanos(), level, category, Thread.currentThread().getName(), message, fields);
+        if (closed.get()) {
+            // The writer is gone, the console is all that is left
+            System.out.println(TextLogSink.format(entry));
+            return;
+        }
+        // Once messages spill, later ones follow them until the writer caught up, keeping each caller's order
+        if ((policy == OverflowPolicy.SPILL && !spilled.isEmpty()) || !buffer.offer(entry)) {
+            overflow(entry);
+        }
+        if (writerIdle) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void overflow(Message entry) {
+        switch (policy) {
+            case BLOCK -> {
+                LockSupport.unpark(writerThread);
+                while (!buffer.offer(entry)) {
+                    if (closed.get() && !writerThread.isAlive()) {
+                        System.out.println(TextLogSink.format(entry));
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+            case DROP -> dropped.incrementAndGet();
+            case SPILL -> spilled.add(entry);
+        }
+    }
+
+    /**
+     * Starts keeping the most recent log lines in memory, for the log viewer. Only messages
+     * logged from now on are kept.
+     *
+     * @param capacity The number of lines kept.
+     * @return The tail, or null if the logger could not be initialized.
+     */
+    LogTail openTail(int capacity) {
+        if (writerThread == null) {
+            return null;
         }
+        LogTail tail = new LogTail(capacity);
+        sinks.add(tail);
+        return tail;
     }
 
     /**
      * Closes the log file writer.
      * This should be called when the application is shutting down to ensure all logs are saved.
+     * Every message logged before this call is written before it returns.
      */
     public void close() {
-        if (writer != null) {
+        if (writerThread == null) {
+            return;
+        }
+        // Whoever closes first logs it, a concurrent close (the shutdown hook) only waits for the drain
+        boolean first = closeRequested.compareAndSet(false, true);
+        if (first) {
             log("LauncherLogger closing."); // Log closing
-            writer.close();
+            closed.set(true);
+            LockSupport.unpark(writerThread);
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (first) {
             System.out.println("LauncherLogger closed.");
         }
     }
+
+    /**
+     * Body of the writer thread: drains the buffer into the sinks in batches until the logger is
+     * closed and everything published before has been written.
+     */
+    private void drainLoop() {
+        long lastFlush = System.nanoTime();
+        while (true) {
+            boolean closing = closed.get();
+            drain();
+            long now = System.nanoTime();
+            int pending = pending();
+            if (pending >= FLUSH_CHARS || (pending > 0 && now - lastFlush >= FLUSH_INTERVAL_NANOS) || closing) {
+                flush();
+                lastFlush = now;
+            }
+            if (closing) {
+                // Drains that start after closing was seen catch every earlier message
+                if (buffer.isEmpty() && spilled.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            if (buffer.isEmpty() && spilled.isEmpty()) {
+                writerIdle = true;
+                // Checked again after announcing idleness, so a message published meanwhile is not left waiting
+                if (buffer.isEmpty() && spilled.isEmpty() && !closed.get()) {
+                    LockSupport.parkNanos(pending() > 0 ? FLUSH_INTERVAL_NANOS - (now - lastFlush) : FLUSH_INTERVAL_NANOS);
+                }
+                writerIdle = false;
+            }
+        }
+        // Catches a message whose caller saw the logger open just before it closed
+        drain();
+        for (LogSink sink : sinks) {
+            sink.close();
+        }
+    }
+
+    private void drain() {
+        Message entry;
+        while (pending() < FLUSH_CHARS && (entry = buffer.poll()) != null) {
+            append(entry);
+        }
+        // Spilled messages were published while the buffer was full, they follow what it held then
+        while (pending() < FLUSH_CHARS && (entry = spilled.poll()) != null) {
+            append(entry);
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            append(new Message(epochNanos(), Level.WARN, Category.LAUNCHER, writerThread.getName(),
+                    "Log messages dropped, the log buffer was full.", new Object[]{"dropped", lost}));
+        }
+    }
+
+    private void append(Message entry) {
+        for (LogSink sink : sinks) {
+            sink.append(entry);
+        }
+    }
+
+    /**
+     * @return The largest number of characters batched by a sink.
+     */
+    private int pending() {
+        int pending = 0;
+        for (LogSink sink : sinks) {
+            pending = Math.max(pending, sink.pending());
+        }
+        return pending;
+    }
+
+    private void flush() {
+        for (LogSink sink : sinks) {
+            sink.flush();
+        }
+    }
+
+    private static long epochNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
 }
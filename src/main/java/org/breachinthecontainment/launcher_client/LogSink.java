@@ -0,0 +1,31 @@
+package org.breachinthecontainment.launcher_client;
+
+/**
+ * A destination of the messages drained by the logger's writer thread. Sinks are only called from
+ * that thread: they collect the messages of a batch and write them out when flushed, reporting
+ * their own write failures.
+ */
+interface LogSink {
+
+    /**
+     * Adds a message to the current batch.
+     *
+     * @param message The message.
+     */
+    void append(LauncherLogger.Message message);
+
+    /**
+     * @return The number of characters batched since the last flush.
+     */
+    int pending();
+
+    /**
+     * Writes out the current batch.
+     */
+    void flush();
+
+    /**
+     * Flushes and releases the sink.
+     */
+    void close();
+}
@@ -0,0 +1,88 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most recent lines of the log, kept in memory for the log viewer. Lines are formatted on the
+ * logger's writer thread and published a batch at a time into a fixed ring, so the tail never holds
+ * more than its capacity however much is logged; readers copy the lines they have not seen yet.
+ */
+final class LogTail implements LogSink {
+
+    private final String[] lines;
+    // Lines of the batch being drained, only touched by the writer thread
+    private final List<String> batch = new ArrayList<>();
+    private final StringBuilder line = new StringBuilder();
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTimestamp;
+    // Number of lines ever published, guarded by this
+    private long published;
+
+    /**
+     * @param capacity The number of lines kept.
+     */
+    LogTail(int capacity) {
+        lines = new String[capacity];
+    }
+
+    @Override
+    public void append(LauncherLogger.Message message) {
+        long second = Math.floorDiv(message.epochNanos(), 1_000_000_000L);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTimestamp = TextLogSink.timestamp(message);
+        }
+        line.setLength(0);
+        TextLogSink.appendLine(line, cachedTimestamp, message);
+        batch.add(line.toString());
+    }
+
+    /**
+     * @return 0, the tail is flushed along with the files and never needs a flush of its own.
+     */
+    @Override
+    public int pending() {
+        return 0;
+    }
+
+    @Override
+    public void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (String text : batch) {
+                lines[(int) (published++ % lines.length)] = text;
+            }
+        }
+        batch.clear();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * @return The number of lines kept.
+     */
+    int capacity() {
+        return lines.length;
+    }
+
+    /**
+     * Copies the lines published after a position, or the whole tail if some of them were already
+     * overwritten.
+     *
+     * @param position The value this method returned last time, or 0 for every line still kept.
+     * @param out Receives the lines, oldest first.
+     * @return The position to pass next time.
+     */
+    synchronized long copySince(long position, List<String> out) {
+        for (long next = Math.max(position, published - lines.length); next < published; next++) {
+            out.add(lines[(int) (next % lines.length)]);
+        }
+        return published;
+    }
+}
@@ -0,0 +1,196 @@
+package org.breachinthecontainment.launcher_client;
+
+import javafx.animation.AnimationTimer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A window showing the tail of the log as it is written. Lines come from a {@link LogTail} and are
+ * rendered by a {@link ListView}, which only creates cells for the visible rows. New lines are
+ * appended in one batch a few times per second, and the list never holds more lines than the tail,
+ * so neither memory nor the work on the FX thread grows with the length of the session.
+ * <p>
+ * The filter matches lines case-insensitively. Narrowing it only rescans the lines still shown,
+ * and new lines are only tested against the current filter once.
+ */
+final class LogViewer {
+
+    // The number of lines kept for the viewer, from the start of the session
+    static final int TAIL_LINES = 50_000;
+    // How often new lines are fetched from the tail while the window is open
+    private static final long REFRESH_NANOS = 100_000_000L;
+    private static final double ROW_HEIGHT = 18;
+
+    private static LogViewer open;
+
+    private final LogTail tail;
+    private final Stage stage = new Stage();
+    private final ObservableList<String> shown = FXCollections.observableArrayList();
+    private final ListView<String> list = new ListView<>(shown);
+    private final Label count = new Label();
+    private final ToggleButton follow = new ToggleButton("Follow");
+    // Reused between refreshes, only touched on the FX thread
+    private final List<String> fetched = new ArrayList<>();
+    private final List<String> matching = new ArrayList<>();
+    private String filter = "";
+    private long position;
+
+    private final AnimationTimer refresher = new AnimationTimer() {
+        private long lastUpdate;
+
+        @Override
+        public void handle(long now) {
+            if (now - lastUpdate < REFRESH_NANOS) {
+                return;
+            }
+            lastUpdate = now;
+            refresh();
+        }
+    };
+
+    private LogViewer(Window owner, LogTail tail) {
+        this.tail = tail;
+
+        TextField filterField = new TextField();
+        filterField.setPromptText("Filter");
+        filterField.textProperty().addListener((observable, previous, current) -> applyFilter(current));
+        HBox.setHgrow(filterField, Priority.ALWAYS);
+        follow.setSelected(true);
+        HBox toolbar = new HBox(10, filterField, follow, count);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+        toolbar.setStyle("-fx-padding: 5;");
+
+        // Fixed row heights let the list lay out only the visible rows without measuring the others
+        list.setFixedCellSize(ROW_HEIGHT);
+        list.setStyle("-fx-font-family: monospace;");
+        VBox.setVgrow(list, Priority.ALWAYS);
+        VBox layout = new VBox(toolbar, list);
+
+        stage.initOwner(owner);
+        stage.setTitle("Launcher Log");
+        stage.setScene(new Scene(layout, 900, 500));
+        stage.setOnHidden(event -> {
+            refresher.stop();
+            open = null;
+        });
+    }
+
+    /**
+     * Shows the log window, or brings it to the front if it is already open.
+     *
+     * @param owner The main window.
+     * @param tail The tail to show; nothing is shown if null.
+     */
+    static void show(Window owner, LogTail tail) {
+        if (tail == null) {
+            return;
+        }
+        if (open != null) {
+            open.stage.toFront();
+            return;
+        }
+        open = new LogViewer(owner, tail);
+        open.refresh();
+        open.refresher.start();
+        open.stage.show();
+    }
+
+    /**
+     * Appends the lines logged since the last refresh that match the filter, dropping the oldest
+     * lines beyond the tail's capacity.
+     */
+    private void refresh() {
+        fetched.clear();
+        position = tail.copySince(position, fetched);
+        if (fetched.isEmpty()) {
+            return;
+        }
+        matching.clear();
+        for (String line : fetched) {
+            if (matches(line, filter)) {
+                matching.add(line);
+            }
+        }
+        fetched.clear();
+        if (matching.size() >= tail.capacity()) {
+            shown.setAll(matching.subList(matching.size() - tail.capacity(), matching.size()));
+        } else if (!matching.isEmpty()) {
+            int excess = shown.size() + matching.size() - tail.capacity();
+            if (excess > 0) {
+                shown.remove(0, excess);
+            }
+            shown.addAll(matching);
+        }
+        matching.clear();
+        updateCount();
+        if (follow.isSelected() && !shown.isEmpty()) {
+            list.scrollTo(shown.size() - 1);
+        }
+    }
+
+    /**
+     * Applies a new filter. A filter that extends the previous one can only remove lines, so only
+     * the lines shown are rescanned; otherwise the whole tail is.
+     */
+    private void applyFilter(String text) {
+        String previous = filter;
+        filter = text == null ? "" : text;
+        matching.clear();
+        if (!previous.isEmpty() && containsIgnoreCase(filter, previous)) {
+            for (String line : shown) {
+                if (matches(line, filter)) {
+                    matching.add(line);
+                }
+            }
+        } else {
+            fetched.clear();
+            position = tail.copySince(0, fetched);
+            for (String line : fetched) {
+                if (matches(line, filter)) {
+                    matching.add(line);
+                }
+            }
+            fetched.clear();
+        }
+        shown.setAll(matching);
+        matching.clear();
+        updateCount();
+        if (follow.isSelected() && !shown.isEmpty()) {
+            list.scrollTo(shown.size() - 1);
+        }
+    }
+
+    private void updateCount() {
+        count.setText(shown.size() + " lines");
+    }
+
+    private static boolean matches(String line, String filter) {
+        return filter.isEmpty() || containsIgnoreCase(line, filter);
+    }
+
+    /**
+     * Case-insensitive {@link String#contains(CharSequence)} that does not copy either string.
+     */
+    private static boolean containsIgnoreCase(String text, String part) {
+        for (int i = 0, last = text.length() - part.length(); i <= last; i++) {
+            if (text.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
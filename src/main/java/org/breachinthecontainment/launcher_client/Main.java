@@ -3,6 +3,10 @@ package org.breachinthecontainment.launcher_client;
 import javafx.application.Application;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
 public class Main extends Application { // Main extends Application
 
     private static LauncherLogger logger;
@@ -15,6 +19,9 @@ public class Main extends Application { // Main extends Application
         launcherDir = PlatformUtil.getLauncherDirectory();
         logger = new LauncherLogger(launcherDir);
         UI.setLogger(logger); // Pass the logger to the UI class
+        MicrosoftAuth.setLogger(logger);
+        // Returning players are signed in with their saved session while the game data is verified
+        MicrosoftAuth.init(launcherDir);
 
         // Delegate the core application flow logic to the UI class
         // UI will decide whether to show a setup window or the main window.
@@ -22,7 +29,40 @@ public class Main extends Application { // Main extends Application
     }
 
     public static void main(String[] args) {
+        List<String> options = Arrays.asList(args);
+        if (options.contains("--verify") || options.contains("--repair")) {
+            // Headless maintenance mode, the UI is not started
+            System.exit(verify(options.contains("--repair"), options.contains("--deep")));
+        }
         launch(args); // This is the standard way to start a JavaFX application.
         // It calls the start() method on the JavaFX Application Thread.
     }
+
+    /**
+     * Checks the installed game data against data.zip and prints a report.
+     * Usage: {@code --verify [--deep]} to only check, {@code --repair [--deep]} to also fix.
+     *
+     * @param repair Whether missing or corrupt files are extracted again.
+     * @param deep Whether files are also checked against their install-time SHA-256.
+     * @return The process exit code: 0 if the data is intact, 1 otherwise.
+     */
+    private static int verify(boolean repair, boolean deep) {
+        launcherDir = PlatformUtil.getLauncherDirectory();
+        logger = new LauncherLogger(launcherDir);
+        try {
+            InstallVerifier.Report report = Installer.verifyAndRepair(launcherDir, repair, deep, logger);
+            report.missing().forEach(name -> System.out.printf("%-12s%s%n", "missing:", name));
+            report.corrupt().forEach(name -> System.out.printf("%-12s%s%n", "corrupt:", name));
+            report.extra().forEach(name -> System.out.printf("%-12s%s%n", "extra:", name));
+            report.repaired().forEach(name -> System.out.printf("%-12s%s%n", "repaired:", name));
+            report.unrepaired().forEach(name -> System.out.printf("%-12s%s%n", "unrepaired:", name));
+            System.out.println(report.summary());
+            return report.isIntact() ? 0 : 1;
+        } catch (IOException e) {
+            logger.log("Verification failed: " + e.getMessage());
+            return 1;
+        } finally {
+            logger.close();
+        }
+    }
 }
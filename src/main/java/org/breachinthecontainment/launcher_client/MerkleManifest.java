@@ -0,0 +1,436 @@
+package org.breachinthecontainment.launcher_client;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunked Merkle tree of data.zip, generated at build time and bundled next to it as
+ * {@link #RESOURCE_PATH}. The archive is cut in fixed size chunks, each leaf is the plain SHA-256
+ * of a chunk, and each node is the SHA-256 of a 0x01 byte followed by its two children; an odd node
+ * is carried up unchanged. Chunks can be hashed in parallel, and a damaged chunk is reported as soon
+ * as it is hashed instead of once the whole archive has been read.
+ * <p>
+ * The manifest also records the SHA-256 of the content of every installed entry, which the zip
+ * format does not carry. It lets the {@link ObjectStore} link content it already holds without
+ * inflating the entry, and extraction check what it inflated against more than a CRC32.
+ * <p>
+ * The manifest does not replace {@link SumChecker#EXPECTED_CHECKSUM}: it is only used when it names
+ * the archive checksum the launcher expects and its chunks hash to its root, and the SHA-256 of the
+ * whole archive is still checked whenever the archive is read out of the launcher image.
+ * <p>
+ * Usage: {@code MerkleManifest <data.zip> <output> [chunk size in MiB]}.
+ */
+public class MerkleManifest {
+
+    // The manifest as bundled with the application
+    public static final String RESOURCE_PATH = "/data.zip.merkle";
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final byte NODE_PREFIX = 0x01;
+    private static final Set<HashEngine.Algorithm> SHA256 = EnumSet.of(HashEngine.Algorithm.SHA256);
+    private static final Gson gson = new Gson();
+
+    private int formatVersion = FORMAT_VERSION;
+    private String archiveChecksum;
+    private long size;
+    private int chunkSize;
+    private String root;
+    private List<String> chunks = new ArrayList<>();
+    // Entry name to the SHA-256 of its content, absent from manifests written by older builds
+    private Map<String, String> entries = new TreeMap<>();
+
+    /**
+     * A chunk of the archive.
+     *
+     * @param index The index of the chunk.
+     * @param offset The offset of its first byte in the archive.
+     * @param length Its length in bytes.
+     */
+    public record Chunk(int index, long offset, long length) {
+        @Override
+        public String toString() {
+            return "chunk " + index + " (bytes " + offset + " to " + (offset + length) + ")";
+        }
+    }
+
+    private MerkleManifest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Usage: java MerkleManifest <data.zip> <output> [chunk size in MiB]");
+            System.exit(1);
+        }
+
+        Path archive = Paths.get(args[0]);
+        int chunkSize = args.length == 3 ? Integer.parseInt(args[2]) * 1024 * 1024 : DEFAULT_CHUNK_SIZE;
+        String checksum = HashEngine.hash(archive, SHA256).hex(HashEngine.Algorithm.SHA256);
+        MerkleManifest manifest = build(archive, checksum, chunkSize, Runtime.getRuntime().availableProcessors());
+        manifest.save(Paths.get(args[1]));
+        System.out.println("Archive checksum: " + checksum);
+        System.out.println("Merkle root: " + manifest.root + " (" + manifest.chunks.size() + " chunks of " + chunkSize + " bytes)");
+        System.out.println("Entry hashes: " + manifest.entries.size());
+    }
+
+    /**
+     * Builds the manifest of an archive, hashing its chunks and the content of its entries in parallel.
+     *
+     * @param archive The zip file.
+     * @param archiveChecksum The SHA-256 of the whole zip file.
+     * @param chunkSize The size of a chunk in bytes.
+     * @param parallelism The number of chunks hashed at the same time.
+     * @return The manifest.
+     * @throws IOException If the archive cannot be read.
+     */
+    public static MerkleManifest build(Path archive, String archiveChecksum, int chunkSize, int parallelism) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        MerkleManifest manifest = new MerkleManifest();
+        manifest.archiveChecksum = archiveChecksum;
+        manifest.size = Files.size(archive);
+        manifest.chunkSize = chunkSize;
+
+        // Closed only once the workers reading its entries have stopped
+        try (ZipArchive zip = ZipArchive.open(archive)) {
+            ExecutorService pool = newPool(parallelism);
+            try {
+                List<Future<String>> hashes = new ArrayList<>();
+                for (Chunk chunk : manifest.chunks()) {
+                    hashes.add(pool.submit(() -> hashChunk(archive, chunk, null)));
+                }
+                Map<String, Future<String>> entryHashes = new TreeMap<>();
+                for (ZipArchive.Entry entry : zip.entries()) {
+                    // The same entries an install manifest lists
+                    if (!entry.isDirectory() && !entry.name().startsWith(BinaryPatch.PATCH_DIR)) {
+                        entryHashes.put(entry.name(), pool.submit(() -> hashEntry(zip, entry)));
+                    }
+                }
+                for (Future<String> hash : hashes) {
+                    manifest.chunks.add(hash.get());
+                }
+                for (Map.Entry<String, Future<String>> hash : entryHashes.entrySet()) {
+                    manifest.entries.put(hash.getKey(), hash.getValue().get());
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Hashing interrupted", e);
+            } finally {
+                shutdown(pool);
+            }
+        }
+        manifest.root = computeRoot(manifest.chunks);
+        return manifest;
+    }
+
+    /**
+     * Loads the manifest bundled with the application.
+     *
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The manifest, or null if none is bundled or it is damaged.
+     */
+    public static MerkleManifest loadResource(LauncherLogger logger) {
+        try (InputStream stream = MerkleManifest.class.getResourceAsStream(RESOURCE_PATH)) {
+            if (stream == null) {
+                return null;
+            }
+            return load(new InputStreamReader(stream, StandardCharsets.UTF_8), RESOURCE_PATH, logger);
+        } catch (IOException e) {
+            logger.warn(Category.INSTALLER, "Failed to read " + RESOURCE_PATH + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static MerkleManifest load(Reader reader, String source, LauncherLogger logger) {
+        try {
+            MerkleManifest manifest = gson.fromJson(reader, MerkleManifest.class);
+            if (manifest == null || manifest.formatVersion != FORMAT_VERSION || manifest.chunks == null
+                    || manifest.archiveChecksum == null || manifest.chunkSize <= 0) {
+                logger.warn(Category.INSTALLER, "Ignoring Merkle manifest with unsupported format: " + source);
+                return null;
+            }
+            // A manifest whose chunks do not add up to its root is damaged, not merely outdated
+            if (manifest.chunks.size() != manifest.chunks().size() || !computeRoot(manifest.chunks).equalsIgnoreCase(manifest.root)) {
+                logger.warn(Category.INSTALLER, "Ignoring inconsistent Merkle manifest: " + source);
+                return null;
+            }
+            if (manifest.entries == null) {
+                manifest.entries = new TreeMap<>();
+            } else if (!manifest.entries.values().stream().allMatch(hash -> HashEngine.isHex(hash, HashEngine.Algorithm.SHA256))) {
+                logger.warn(Category.INSTALLER, "Ignoring malformed entry hashes of Merkle manifest: " + source);
+                manifest.entries = new TreeMap<>();
+            }
+            return manifest;
+        } catch (JsonParseException | IllegalArgumentException e) {
+            logger.warn(Category.INSTALLER, "Failed to read Merkle manifest " + source + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the manifest next to its final location and renames it into place.
+     *
+     * @param file The manifest file.
+     * @throws IOException If the manifest cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            gson.toJson(this, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks a copy of the archive, hashing its chunks in parallel. Every damaged chunk is logged
+     * as soon as it is found.
+     *
+     * @param archive The copy of the archive.
+     * @param parallelism The number of chunks hashed at the same time.
+     * @param progress Receives the number of bytes hashed, may be null.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The damaged chunks, empty if the copy matches the manifest.
+     * @throws IOException If the archive cannot be read.
+     */
+    public List<Chunk> verify(Path archive, int parallelism, InstallProgress progress, LauncherLogger logger) throws IOException {
+        if (Files.size(archive) != size) {
+            logger.warn(Category.INSTALLER, archive.getFileName() + " has " + Files.size(archive) + " bytes, the Merkle manifest expects " + size + ".");
+            return chunks();
+        }
+
+        List<Chunk> damaged = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = newPool(parallelism);
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            for (Chunk chunk : chunks()) {
+                pending.add(pool.submit(() -> {
+                    if (!hashChunk(archive, chunk, progress).equalsIgnoreCase(chunks.get(chunk.index()))) {
+                        logger.warn(Category.INSTALLER, "Damaged " + chunk + " in " + archive.getFileName());
+                        damaged.add(chunk);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Verification interrupted", e);
+        } finally {
+            shutdown(pool);
+        }
+        damaged.sort((a, b) -> Integer.compare(a.index(), b.index()));
+        return damaged;
+    }
+
+    /**
+     * Starts checking a copy of the archive while it is being written. Chunks are hashed in the
+     * background as soon as they are complete, from the file itself while it is still in the page
+     * cache, so the writer is never slowed down by the hashing.
+     *
+     * @param target The file the archive is being written to.
+     * @param parallelism The number of chunks hashed at the same time.
+     * @return The check, to be told about every write.
+     */
+    public CopyCheck checkCopy(Path target, int parallelism) {
+        return new CopyCheck(target, parallelism);
+    }
+
+    /**
+     * Checks the chunks of an archive being copied, see {@link #checkCopy(Path, int)}.
+     */
+    public final class CopyCheck implements AutoCloseable {
+        private final Path target;
+        private final ExecutorService pool;
+        private final List<Future<?>> pending = new ArrayList<>();
+        private final List<Chunk> damaged = Collections.synchronizedList(new ArrayList<>());
+        private long written;
+        private int submitted;
+
+        private CopyCheck(Path target, int parallelism) {
+            this.target = target;
+            this.pool = newPool(parallelism);
+        }
+
+        /**
+         * Records bytes written to the copy and hashes the chunks they complete. The bytes must
+         * have been handed to the operating system, not held in a buffer.
+         *
+         * @param length The number of bytes just written.
+         * @return false once a damaged chunk was found, so the copy can be abandoned early.
+         */
+        public boolean written(long length) {
+            written += length;
+            while (submitted < chunks.size() && chunkEnd(submitted) <= written) {
+                Chunk chunk = chunk(submitted++);
+                pending.add(pool.submit(() -> {
+                    if (!hashChunk(target, chunk, null).equalsIgnoreCase(chunks.get(chunk.index()))) {
+                        damaged.add(chunk);
+                    }
+                    return null;
+                }));
+            }
+            return damaged.isEmpty();
+        }
+
+        /**
+         * Waits for the last chunks to be hashed.
+         *
+         * @return The damaged chunks, sorted, empty if the copy matches the manifest.
+         * @throws IOException If the copy does not have the size of the archive or cannot be read.
+         */
+        public List<Chunk> finish() throws IOException {
+            if (written != size) {
+                throw new IOException(target.getFileName() + " has " + written + " bytes, the Merkle manifest expects " + size);
+            }
+            try {
+                for (Future<?> future : pending) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Verification interrupted", e);
+            }
+            List<Chunk> result = new ArrayList<>(damaged);
+            result.sort((a, b) -> Integer.compare(a.index(), b.index()));
+            return result;
+        }
+
+        /**
+         * Stops hashing and waits for the workers, so none of them still holds the copy open once
+         * this returns: Windows cannot delete a file that is open, which an abandoned copy must be.
+         */
+        @Override
+        public void close() {
+            shutdown(pool);
+        }
+    }
+
+    public String getArchiveChecksum() {
+        return archiveChecksum;
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The SHA-256 of the content of every installed entry by name, empty if the manifest
+     *         was written before they were recorded.
+     */
+    public Map<String, String> getEntryHashes() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    private List<Chunk> chunks() {
+        List<Chunk> all = new ArrayList<>();
+        for (int index = 0; (long) index * chunkSize < size || (index == 0 && size == 0); index++) {
+            all.add(chunk(index));
+        }
+        return all;
+    }
+
+    private Chunk chunk(int index) {
+        long offset = (long) index * chunkSize;
+        return new Chunk(index, offset, chunkEnd(index) - offset);
+    }
+
+    private long chunkEnd(int index) {
+        return Math.min(size, (long) (index + 1) * chunkSize);
+    }
+
+    private static String hashChunk(Path archive, Chunk chunk, InstallProgress progress) throws IOException {
+        return HashEngine.hash(archive, chunk.offset(), chunk.length(), SHA256, progress).hex(HashEngine.Algorithm.SHA256);
+    }
+
+    private static String hashEntry(ZipArchive zip, ZipArchive.Entry entry) throws IOException {
+        try (InputStream stream = zip.openStream(entry)) {
+            return HashEngine.hash(stream, SHA256, null).hex(HashEngine.Algorithm.SHA256);
+        }
+    }
+
+    /**
+     * Folds the leaves into the root, level by level.
+     */
+    private static String computeRoot(List<String> leaves) {
+        HexFormat hex = HexFormat.of();
+        List<byte[]> level = new ArrayList<>(leaves.size());
+        for (String leaf : leaves) {
+            level.add(hex.parseHex(leaf));
+        }
+        MessageDigest digest = HashEngine.newDigest(HashEngine.Algorithm.SHA256);
+        while (level.size() > 1) {
+            List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                if (i + 1 == level.size()) {
+                    parents.add(level.get(i));
+                    continue;
+                }
+                digest.update(NODE_PREFIX);
+                digest.update(level.get(i));
+                digest.update(level.get(i + 1));
+                parents.add(digest.digest());
+            }
+            level = parents;
+        }
+        return level.isEmpty() ? null : HashEngine.toHex(level.get(0));
+    }
+
+    /**
+     * Interrupts the workers of a pool and waits for them to return, closing the files they read.
+     */
+    private static void shutdown(ExecutorService pool) {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExecutorService newPool(int parallelism) {
+        return Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "merkle-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -1,87 +1,296 @@
 package org.breachinthecontainment.launcher_client;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import fr.litarvan.openauth.microsoft.*;
-import java.io.*;
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MicrosoftAuth {
-    private static MicrosoftAuthResult authResult = null;
-    private static final Gson gson = new Gson();
+    // How long a single request of the Xbox Live, XSTS and Minecraft chain may take
+    public static final Duration HOP_TIMEOUT = Duration.ofSeconds(30);
+    // How long before the first cached token expires the session is refreshed
+    public static final Duration REFRESH_LEAD = Duration.ofMinutes(10);
+    // Up to this much earlier still, at random, so launchers started together do not refresh together
+    private static final Duration REFRESH_JITTER = Duration.ofMinutes(5);
+    // The wait after a failed refresh, doubled with every further failure up to 16 times as long
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    // Never refresh sooner than this, even for a token that is already expired
+    private static final Duration MIN_REFRESH_DELAY = Duration.ofMinutes(1);
+
+    // The signed-in session with the token of every hop, replaced as a whole so readers never see half of one
+    private static final AtomicReference<AuthSession> session = new AtomicReference<>();
+    // Sleeps until the next refresh of the session, replaced whenever a new session is published
+    private static Thread refresher;
+    // Bumped by every sign-out, so a sign-in started before one does not sign the player back in
+    private static long logouts;
     private static Path sessionFile;
+    private static LauncherLogger logger;
+    // Resolved once the saved session has been tried, true if it signed the player in
+    private static volatile CompletableFuture<Boolean> autoLogin = CompletableFuture.completedFuture(false);
+    // Sign-in requests block on the network, a virtual thread each keeps them off the FX thread
+    private static final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("microsoft-auth-", 0).factory());
+
+    public static void setLogger(LauncherLogger appLogger) {
+        logger = appLogger;
+    }
 
+    /**
+     * Starts signing the player in with the saved session in the background and returns at once,
+     * so the sign-in overlaps with the verification and installation of the game data.
+     *
+     * @param launcherDir The base directory of the launcher.
+     */
     public static void init(String launcherDir) {
         sessionFile = Path.of(launcherDir, "session", "session.json");
-        tryAutoLogin();
+        autoLogin = CompletableFuture.supplyAsync(MicrosoftAuth::tryAutoLogin, executor);
+    }
+
+    /**
+     * @return A future resolved once the sign-in with the saved session started by {@link #init(String)}
+     *         is over, by true if it signed the player in. Already resolved by false before init.
+     */
+    public static CompletableFuture<Boolean> autoLogin() {
+        return autoLogin;
     }
 
+    /**
+     * Signs in through the Microsoft webview, blocking until the player is signed in.
+     * Must not be called from the JavaFX thread, use {@link #signInAsync()} there.
+     *
+     * @return true if the player is signed in and owns Minecraft.
+     */
     public static boolean signIn() {
-        MicrosoftAuthenticator authenticator = new MicrosoftAuthenticator();
         try {
-            authResult = authenticator.loginWithWebview();
-            saveSession(authResult);
+            signInAsync().get();
             return ownsMinecraft();
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (ExecutionException | CancellationException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
     }
 
+    /**
+     * Signs in through the Microsoft webview without blocking the caller. The webview runs on the
+     * FX thread and the Xbox Live, XSTS and Minecraft requests on the auth executor, each bounded
+     * by {@link #HOP_TIMEOUT}. Cancelling the returned future closes the webview or interrupts the
+     * request in flight.
+     *
+     * @return A future resolved by the session once it is saved, cancelled if the player closed the
+     *         webview, or failed with the reason the sign-in did not succeed. Callbacks run on the auth
+     *         executor; UI code should move them to the FX thread, e.g. with {@code Platform::runLater}.
+     */
+    public static CompletableFuture<MicrosoftAuthResult> signInAsync() {
+        AuthChain chain = new AuthChain(executor, HOP_TIMEOUT, logger);
+        CompletableFuture<MicrosoftAuthResult> login = chain.loginWithAsyncWebview(executor);
+        CompletableFuture<MicrosoftAuthResult> signIn = new CompletableFuture<>();
+        login.whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                log(LauncherLogger.Level.WARN, "Sign-in failed: " + cause.getMessage());
+                signIn.completeExceptionally(cause);
+            } else if (result == null) {
+                log(LauncherLogger.Level.INFO, "Sign-in window closed.");
+                signIn.cancel(false);
+            } else {
+                publish(chain.session());
+                log(LauncherLogger.Level.INFO, "Signed in as " + getUsername() + ".");
+                signIn.complete(result);
+            }
+        });
+        // Cancelling the caller's future stops whatever step the sign-in is at
+        signIn.whenComplete((result, error) -> {
+            if (signIn.isCancelled()) {
+                chain.cancel();
+                login.cancel(false);
+            }
+        });
+        return signIn;
+    }
+
     public static boolean isSignedIn() { // boolean to check if you're signed in
-        return authResult != null && authResult.getProfile() != null;
+        AuthSession current = session.get();
+        return current != null && current.profile() != null;
     }
 
     public static String getUsername() { // mc username
-        return authResult != null ? authResult.getProfile().getName() : "Unknown";
+        AuthSession current = session.get();
+        return current != null && current.profile() != null ? current.profile().getName() : "Unknown";
     }
 
+    /**
+     * Never waits for the network: the session is kept valid by refreshing it in the background
+     * before its tokens expire.
+     *
+     * @return The current session, null if the player is not signed in.
+     */
     public static MicrosoftAuthResult getAuthResult() {
-        return authResult;
+        AuthSession current = session.get();
+        return current != null ? current.toResult() : null;
     }
 
-    private static void saveSession(MicrosoftAuthResult result) { // save sessions for auto login
+    private static void saveSession(AuthSession signedIn) { // save sessions for auto login
+        if (sessionFile == null) {
+            return;
+        }
         try {
-            if (!Files.exists(sessionFile.getParent())) {
-                Files.createDirectories(sessionFile.getParent());
-            }
+            signedIn.save(sessionFile);
+            System.out.println("Session saved.");
+        } catch (IOException e) {
+            System.err.println("Failed to save session: " + e.getMessage());
+        }
+    }
 
-            JsonObject json = new JsonObject();
-            json.addProperty("refresh_token", result.getRefreshToken());
+    /**
+     * Signs in with the saved session, redoing only the hops whose token has expired. While the
+     * Minecraft token is valid this makes no request at all.
+     */
+    private static boolean tryAutoLogin() { // auto login
+        if (sessionFile == null || !Files.exists(sessionFile)) return false;
+
+        long start = System.nanoTime();
+        long logoutsAtStart;
+        synchronized (MicrosoftAuth.class) {
+            logoutsAtStart = logouts;
+        }
+        try {
+            AuthSession saved = AuthSession.load(sessionFile);
+            if (saved == null) {
+                return false;
+            }
 
-            try (Writer writer = new FileWriter(sessionFile.toFile())) {
-                gson.toJson(json, writer);
+            AuthSession resumed = new AuthChain(executor, HOP_TIMEOUT, logger).resume(saved);
+            synchronized (MicrosoftAuth.class) {
+                if (logouts != logoutsAtStart) {
+                    log(LauncherLogger.Level.INFO, "Auto-login discarded, the player signed out meanwhile.");
+                    return false;
+                }
+                // A manual sign-in that finished first wins
+                if (session.compareAndSet(null, resumed)) {
+                    if (resumed != saved) {
+                        saveSession(resumed);
+                    }
+                    scheduleRefresh(resumed, 0);
+                }
             }
 
-            System.out.println("Session saved.");
-        } catch (IOException e) {
-            System.err.println("Failed to save session: " + e.getMessage());
+            if (logger != null) {
+                logger.event(LauncherLogger.Level.INFO, Category.AUTH, "Auto-login successful. Welcome back, "
+                        + resumed.profile().getName(), "durationMs", (System.nanoTime() - start) / 1_000_000);
+            }
+            return true;
+        } catch (Exception e) {
+            log(LauncherLogger.Level.WARN, "Auto-login failed: " + e.getMessage());
+            return false;
         }
     }
 
-    private static void tryAutoLogin() { // auto login
-        if (sessionFile == null || !Files.exists(sessionFile)) return;
+    /**
+     * Makes a new session the current one, saves it and schedules its refresh.
+     */
+    private static synchronized void publish(AuthSession signedIn) {
+        session.set(signedIn);
+        saveSession(signedIn);
+        scheduleRefresh(signedIn, 0);
+    }
 
-        try (Reader reader = new FileReader(sessionFile.toFile())) {
-            JsonObject json = gson.fromJson(reader, JsonObject.class);
-            String refreshToken = json.get("refresh_token").getAsString();
+    /**
+     * Starts a virtual thread that sleeps until shortly before the first token of the session
+     * expires, or until the next retry after a failed refresh, then refreshes it. Replaces the
+     * refresh scheduled for the previous session.
+     *
+     * @param signedIn The session to refresh.
+     * @param failures How many refreshes of this session failed in a row.
+     */
+    private static synchronized void scheduleRefresh(AuthSession signedIn, int failures) {
+        cancelRefresh();
+        Instant expiry = signedIn.nextExpiry();
+        if (expiry == null) {
+            return;
+        }
+        Duration delay;
+        if (failures == 0) {
+            long jitter = ThreadLocalRandom.current().nextLong(REFRESH_JITTER.toMillis());
+            delay = Duration.between(Instant.now(), expiry).minus(REFRESH_LEAD).minusMillis(jitter);
+        } else {
+            delay = RETRY_DELAY.multipliedBy(1L << Math.min(failures - 1, 4));
+        }
+        Duration wait = delay.compareTo(MIN_REFRESH_DELAY) < 0 ? MIN_REFRESH_DELAY : delay;
+        log(LauncherLogger.Level.DEBUG, "Session refresh scheduled in " + wait.toMinutes() + " min.");
+        refresher = Thread.ofVirtual().name("microsoft-auth-refresh").start(() -> {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                return;
+            }
+            refresh(signedIn, expiry, failures);
+        });
+    }
 
-            MicrosoftAuthenticator authenticator = new MicrosoftAuthenticator();
-            authResult = authenticator.loginWithRefreshToken(refreshToken);
+    /**
+     * Stops the scheduled refresh, unless it is the caller.
+     */
+    private static synchronized void cancelRefresh() {
+        if (refresher != null && refresher != Thread.currentThread()) {
+            refresher.interrupt();
+        }
+        refresher = null;
+    }
 
-            System.out.println("Auto-login successful. Welcome back, " + authResult.getProfile().getName());
+    /**
+     * Redoes the hops whose token will have expired by the given time and publishes the result,
+     * unless the session was replaced or signed out meanwhile.
+     */
+    private static void refresh(AuthSession signedIn, Instant expiry, int failures) {
+        long start = System.nanoTime();
+        try {
+            AuthSession refreshed = new AuthChain(executor, HOP_TIMEOUT, logger).resume(signedIn, expiry);
+            synchronized (MicrosoftAuth.class) {
+                // Signing out or in again meanwhile replaced the session this refresh was for
+                if (!session.compareAndSet(signedIn, refreshed)) {
+                    return;
+                }
+                saveSession(refreshed);
+                scheduleRefresh(refreshed, 0);
+            }
+            if (logger != null) {
+                logger.event(LauncherLogger.Level.INFO, Category.AUTH, "Session refreshed.",
+                        "durationMs", (System.nanoTime() - start) / 1_000_000);
+            }
         } catch (Exception e) {
-            System.err.println("Auto-login failed: " + e.getMessage());
+            // Under the lock, so a session published meanwhile cannot lose its own refresh to this retry
+            synchronized (MicrosoftAuth.class) {
+                if (Thread.currentThread().isInterrupted() || session.get() != signedIn) {
+                    return;
+                }
+                log(LauncherLogger.Level.WARN, "Session refresh failed, retrying later: " + e.getMessage());
+                scheduleRefresh(signedIn, failures + 1);
+            }
         }
     }
 
     private static boolean ownsMinecraft() { // check if minecraft is actually owned
-        return authResult != null && authResult.getProfile() != null;
+        return isSignedIn();
     }
 
-    public static void logout() { // log out
-        authResult = null;
+    public static synchronized void logout() { // log out
+        logouts++;
+        session.set(null);
+        cancelRefresh();
         try {
             if (sessionFile != null && Files.exists(sessionFile)) {
                 Files.delete(sessionFile);
@@ -92,4 +301,11 @@ public class MicrosoftAuth {
         }
     }
 
+    private static void log(LauncherLogger.Level level, String message) {
+        if (logger != null) {
+            logger.log(level, Category.AUTH, message);
+        } else {
+            System.out.println(message);
+        }
+    }
 }
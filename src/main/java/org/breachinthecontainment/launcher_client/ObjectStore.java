@@ -0,0 +1,259 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store of extracted files, laid out as {@code objects/ab/abcdef...} where the
+ * name is the SHA-256 of the content. Working trees are made of hardlinks to the objects, so a file
+ * shipped several times, or kept by several pack versions, only takes disk space once.
+ * <p>
+ * Objects are only ever looked up by SHA-256. A zip entry's size and CRC32 do not identify its
+ * content: among thousands of files of the same size, two different contents sharing a CRC32 are
+ * likely enough to matter. An entry can therefore only be linked without being inflated when its
+ * SHA-256 is known ahead, as the {@link MerkleManifest} bundled with data.zip records it.
+ * <p>
+ * Since working trees link to the objects, writing to an installed file in place also writes to
+ * its object, so the store keeps an index of the modification time of every object as it was
+ * added. An object touched since then is rehashed before it is reused, and evicted if its content
+ * changed.
+ */
+public class ObjectStore implements Closeable {
+
+    private static final String INDEX_NAME = "index";
+    private static final String TEMP_DIR_NAME = "tmp";
+    // Files games rewrite in place are copied instead of linked, so editing them cannot alter an object
+    private static final Set<String> COPIED_EXTENSIONS = Set.of("cfg", "conf", "ini", "json", "properties", "toml", "txt");
+
+    private final Path root;
+    private final Path tempDir;
+    // SHA-256 of an object to the modification time of its file when it was added or last verified,
+    // in milliseconds since the epoch
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final BufferedWriter indexWriter;
+    private final LauncherLogger logger;
+    // Directories where a hardlink failed, for instance because they are on another file system
+    private final Set<Path> linklessDirectories = ConcurrentHashMap.newKeySet();
+
+    private ObjectStore(Path root, BufferedWriter indexWriter, LauncherLogger logger) {
+        this.root = root;
+        this.tempDir = root.resolve(TEMP_DIR_NAME);
+        this.indexWriter = indexWriter;
+        this.logger = logger;
+    }
+
+    /**
+     * Opens the store, creating it if needed, and loads its index.
+     * Temporary files left by an interrupted extraction are removed.
+     *
+     * @param root The directory holding the objects.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The opened store, which must be closed.
+     * @throws IOException If the store cannot be created or its index cannot be opened.
+     */
+    public static ObjectStore open(Path root, LauncherLogger logger) throws IOException {
+        Path tempDir = root.resolve(TEMP_DIR_NAME);
+        Files.createDirectories(tempDir);
+        try (Stream<Path> leftovers = Files.list(tempDir)) {
+            for (Path leftover : (Iterable<Path>) leftovers::iterator) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+
+        Path indexFile = root.resolve(INDEX_NAME);
+        BufferedWriter writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        ObjectStore store = new ObjectStore(root, writer, logger);
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Later lines replace earlier ones, they record objects verified again since. Lines of
+                // older launchers also start with the size and CRC32 of the object, which are skipped.
+                String[] parts = line.split(" ");
+                if (parts.length == 2 || parts.length == 4) {
+                    String hash = parts[parts.length - 2];
+                    try {
+                        if (HashEngine.isHex(hash, HashEngine.Algorithm.SHA256)) {
+                            store.index.put(hash.toLowerCase(Locale.ROOT), Long.parseLong(parts[parts.length - 1]));
+                        }
+                    } catch (NumberFormatException ignored) {
+                        // Line torn by a crash
+                    }
+                }
+            }
+        }
+        logger.info(Category.INSTALLER, "Object store opened with " + store.index.size() + " indexed objects.");
+        return store;
+    }
+
+    /**
+     * Finds the object holding content of the given SHA-256. An object modified since it was added,
+     * or not indexed at all, is rehashed first: it is only returned if its content still matches
+     * its name, and evicted otherwise.
+     *
+     * @param hash The SHA-256 of the content as a hex string, may be null.
+     * @return The SHA-256 of the object in the store's spelling, or null if the store has no such
+     *         intact object or the hash is malformed.
+     */
+    public String lookup(String hash) {
+        if (!HashEngine.isHex(hash, HashEngine.Algorithm.SHA256)) {
+            return null;
+        }
+        hash = hash.toLowerCase(Locale.ROOT);
+        Path object = objectPath(hash);
+        try {
+            long modified = Files.getLastModifiedTime(object).toMillis();
+            Long indexed = index.get(hash);
+            if (indexed != null && indexed == modified) {
+                return hash;
+            }
+            // Possibly written through a link from a working tree
+            if (HashEngine.hexEquals(HashEngine.hash(object, EnumSet.of(HashEngine.Algorithm.SHA256)).sha256(), hash)) {
+                record(hash, modified);
+                return hash;
+            }
+            index.remove(hash);
+            evict(hash);
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return A new empty file in the store's temporary directory, to extract content into.
+     * @throws IOException If the file cannot be created.
+     */
+    public Path newTemporaryFile() throws IOException {
+        return Files.createTempFile(tempDir, "object", ".tmp");
+    }
+
+    /**
+     * Moves extracted content into the store. If an object with the same hash already exists, the
+     * temporary file is discarded.
+     *
+     * @param temporary A file created by {@link #newTemporaryFile()}, holding the content.
+     * @param hash The SHA-256 of the content as a lowercase hex string.
+     * @throws IOException If the object cannot be stored.
+     */
+    public void add(Path temporary, String hash) throws IOException {
+        Path object = objectPath(hash);
+        if (Files.exists(object)) {
+            if (isIntact(object, hash)) {
+                // Replacing it would break the links other working trees hold to it
+                Files.delete(temporary);
+            } else {
+                // The links to it already show the modified content, so nothing is lost by replacing it
+                Files.move(temporary, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.warn(Category.INSTALLER, "Replaced modified object " + hash);
+            }
+        } else {
+            Files.createDirectories(object.getParent());
+            try {
+                Files.move(temporary, object, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        long modified = Files.getLastModifiedTime(object).toMillis();
+        Long indexed = index.get(hash);
+        if (indexed == null || indexed != modified) {
+            record(hash, modified);
+        }
+    }
+
+    /**
+     * @return true if an existing object is unchanged since it was indexed, or still hashes to its name.
+     */
+    private boolean isIntact(Path object, String hash) throws IOException {
+        Long indexed = index.get(hash);
+        if (indexed != null && indexed == Files.getLastModifiedTime(object).toMillis()) {
+            return true;
+        }
+        return HashEngine.hexEquals(HashEngine.hash(object, EnumSet.of(HashEngine.Algorithm.SHA256)).sha256(), hash);
+    }
+
+    private void record(String hash, long modified) throws IOException {
+        index.put(hash, modified);
+        synchronized (indexWriter) {
+            indexWriter.write(hash + " " + modified + "\n");
+        }
+    }
+
+    /**
+     * Makes an object appear at the given path, as a hardlink when the file system supports it and
+     * as a copy otherwise. Once a link fails in a directory, later files of that directory are copied.
+     *
+     * @param hash The SHA-256 of the object.
+     * @param target The path in the working tree, replaced if it exists.
+     * @throws IOException If neither a link nor a copy can be made.
+     */
+    public void checkout(String hash, Path target) throws IOException {
+        Path object = objectPath(hash);
+        Path directory = target.getParent();
+        if (!isCopied(target) && !linklessDirectories.contains(directory)) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, object);
+                return;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                if (linklessDirectories.add(directory)) {
+                    logger.warn(Category.INSTALLER, "Hardlinks unavailable in " + directory + " (" + e.getMessage() + "), copying objects there instead.");
+                }
+            }
+        }
+        Files.copy(object, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Deletes an object whose content can no longer be trusted, for instance because a file linked
+     * to it was modified in place. Later lookups of it miss until it is added again.
+     *
+     * @param hash The SHA-256 the object was stored under.
+     * @throws IOException If the object cannot be deleted.
+     */
+    public void evict(String hash) throws IOException {
+        if (Files.deleteIfExists(objectPath(hash))) {
+            logger.warn(Category.INSTALLER, "Evicted modified object " + hash);
+        }
+    }
+
+    /**
+     * @param hash The SHA-256 of an object.
+     * @return Where the object is, or would be, stored.
+     */
+    public Path objectPath(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (indexWriter) {
+            indexWriter.close();
+        }
+    }
+
+    private static boolean isCopied(Path target) {
+        String name = target.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COPIED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,164 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compares a whole update of a large file that changed slightly, shipped either as the new file
+ * alone or as the new file plus a patch against the previous version. Both updates copy data.zip
+ * to the cache while hashing it, as the setup does, then either extract the file or patch the
+ * installed one. A synthetic file of the requested size in MiB is generated and a few hundred
+ * small edits are made to it.
+ * <p>
+ * A release still ships the full file next to its patch, for installations that do not have the
+ * previous version, so the patch makes data.zip larger and its copy slower. What patching saves is
+ * inflating the file; it still reads the installed version and writes the whole new one.
+ */
+public class PatchBenchmark {
+
+    private static final String FILE_NAME = "mods/pack.jar";
+    private static final String PATCH_NAME = BinaryPatch.PATCH_DIR + FILE_NAME + BinaryPatch.PATCH_SUFFIX;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+
+        Path workDir = Files.createTempDirectory("patch-benchmark");
+        try {
+            Path previous = workDir.resolve("previous.jar");
+            Path current = workDir.resolve("current.jar");
+            Path patch = workDir.resolve("current.bpatch");
+            generateVersions(previous, current, megabytes * 1024 * 1024);
+
+            long createStart = System.nanoTime();
+            try (OutputStream out = Files.newOutputStream(patch)) {
+                BinaryPatch.create(previous, current, out);
+            }
+            long create = System.nanoTime() - createStart;
+
+            Path plainArchive = workDir.resolve("plain.zip");
+            Path patchArchive = workDir.resolve("patched.zip");
+            writeArchive(plainArchive, current, null);
+            writeArchive(patchArchive, current, patch);
+
+            // Warm the page cache so every run starts from the same state
+            copyArchive(patchArchive, workDir.resolve("warmup.zip"));
+            ZipExtractor.extract(plainArchive, workDir.resolve("warmup"), Set.of(FILE_NAME), null, null, null, null, null);
+
+            Path plainCopy = workDir.resolve("plain-cache.zip");
+            long plainCopying = time(() -> copyArchive(plainArchive, plainCopy));
+            long extracting = time(() -> ZipExtractor.extract(plainCopy, workDir.resolve("full"), Set.of(FILE_NAME), null, null, null, null, null));
+
+            Path patchCopy = workDir.resolve("patched-cache.zip");
+            Path patched = workDir.resolve("patched.jar");
+            long patchCopying = time(() -> copyArchive(patchArchive, patchCopy));
+            long patching = time(() -> {
+                try (ZipArchive zip = ZipArchive.open(patchCopy);
+                     InputStream stream = zip.openStream(zip.entry(PATCH_NAME))) {
+                    BinaryPatch.apply(previous, stream, patched, null);
+                }
+            });
+
+            long size = Files.size(current);
+            long plainSize = Files.size(plainArchive);
+            long patchSize = Files.size(patchArchive);
+            long full = plainCopying + extracting;
+            long update = patchCopying + patching;
+            System.out.println("File size: " + size + " bytes, patch: " + Files.size(patch) + " bytes (created in "
+                    + create / 1_000_000 + " ms)");
+            System.out.println("data.zip: " + plainSize + " bytes without the patch, " + patchSize + " bytes with it ("
+                    + (patchSize - plainSize) + " bytes more to ship and copy)");
+            System.out.println("Update without patch: copy data.zip " + plainCopying / 1_000_000 + " ms + extract "
+                    + extracting / 1_000_000 + " ms = " + full / 1_000_000 + " ms");
+            System.out.println("Update with patch:    copy data.zip " + patchCopying / 1_000_000 + " ms + patch "
+                    + patching / 1_000_000 + " ms = " + update / 1_000_000 + " ms");
+            System.out.printf("Saved: %d ms of the whole update (%.1f%%); no archive bytes are saved, the patch adds %d.%n",
+                    (full - update) / 1_000_000, 100.0 * (full - update) / full, patchSize - plainSize);
+        } finally {
+            try (Stream<Path> walk = Files.walk(workDir)) {
+                walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Writes a deflated archive holding the file, and its patch when there is one.
+     */
+    private static void writeArchive(Path archive, Path file, Path patch) throws IOException {
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zos.putNextEntry(new ZipEntry(FILE_NAME));
+            Files.copy(file, zos);
+            zos.closeEntry();
+            if (patch != null) {
+                zos.putNextEntry(new ZipEntry(PATCH_NAME));
+                Files.copy(patch, zos);
+                zos.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Copies an archive the way the setup copies the bundled data.zip to its cache, hashing it on the way.
+     */
+    private static void copyArchive(Path archive, Path target) throws IOException {
+        HashEngine.Hasher hasher = HashEngine.newHasher(EnumSet.of(HashEngine.Algorithm.SHA256));
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(archive);
+             OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                hasher.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        hasher.finish();
+    }
+
+    private interface Run {
+        void run() throws IOException;
+    }
+
+    private static long time(Run run) throws IOException {
+        long start = System.nanoTime();
+        run.run();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Writes a compressible file and a copy with small insertions, deletions and overwrites spread
+     * over it, like a rebuilt jar where a few classes changed.
+     */
+    private static void generateVersions(Path previous, Path current, int size) throws IOException {
+        Random random = new Random(42);
+        byte[] words = "minecraft forge texture model sound config library ".getBytes();
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = random.nextInt(4) == 0 ? (byte) random.nextInt() : words[i % words.length];
+        }
+        Files.write(previous, content);
+
+        try (OutputStream out = Files.newOutputStream(current)) {
+            int position = 0;
+            for (int edit = 0; edit < 200; edit++) {
+                int next = Math.min(size, position + random.nextInt(2 * size / 200));
+                out.write(content, position, next - position);
+                byte[] inserted = new byte[random.nextInt(512)];
+                random.nextBytes(inserted);
+                out.write(inserted);
+                // Skipping a few bytes turns the insertion into an overwrite or a deletion
+                position = Math.min(size, next + random.nextInt(512));
+            }
+            out.write(content, position, size - position);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A log file that rolls over by size and by day. The current file is written through a
+ * {@link FileChannel}; a rolled file is renamed to {@code <name>-<day>.<n><extension>} and gzipped
+ * by a low priority background thread, which then deletes the oldest rolled files beyond the
+ * retention count. Only the logger's writer thread writes to it, so rolling never holds up callers
+ * of {@link LauncherLogger#log(String)}.
+ */
+final class RollingLogFile implements AutoCloseable {
+
+    private static final int ENCODE_BUFFER_SIZE = 64 * 1024;
+    // How long closing waits for rolled files to be compressed; leftovers are compressed on the next start
+    private static final long COMPRESSION_WAIT_SECONDS = 5;
+
+    private final Path directory;
+    private final String name;
+    private final String extension;
+    private final Path current;
+    private final LauncherLogger.Rotation rotation;
+    private final Pattern rolledPattern;
+    // Lone surrogates, e.g. from a broken file name, are written as '?' instead of failing the batch
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer encoded = ByteBuffer.allocateDirect(ENCODE_BUFFER_SIZE);
+    private final ExecutorService compressor;
+    private FileChannel channel;
+    private long size;
+    private LocalDate day;
+
+    /**
+     * Opens the current file for appending.
+     *
+     * @param directory The logs directory.
+     * @param name The file name without extension, such as "launcher".
+     * @param extension The extension including its dot, such as ".log".
+     * @param rotation When to roll and how many rolled files to keep.
+     * @throws IOException If the current file cannot be opened.
+     */
+    RollingLogFile(Path directory, String name, String extension, LauncherLogger.Rotation rotation) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.extension = extension;
+        this.current = directory.resolve(name + extension);
+        this.rotation = rotation;
+        this.rolledPattern = Pattern.compile(Pattern.quote(name) + "-(\\d{4}-\\d{2}-\\d{2})\\.(\\d+)" + Pattern.quote(extension) + "(\\.gz)?");
+        this.compressor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-compressor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        open();
+        // Files rolled by a run that exited before compressing them
+        for (Path rolled : rolledFiles()) {
+            if (!rolled.getFileName().toString().endsWith(".gz")) {
+                compressor.execute(() -> compress(rolled));
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        // An existing file belongs to the day it was last written
+        day = size > 0
+                ? LocalDate.ofInstant(Files.getLastModifiedTime(current).toInstant(), ZoneId.systemDefault())
+                : LocalDate.now();
+    }
+
+    /**
+     * @return The current file.
+     */
+    Path path() {
+        return current;
+    }
+
+    /**
+     * Appends text, rolling the file over first if the text would make it too large or the day changed.
+     *
+     * @param text The text to append.
+     * @throws IOException If the file cannot be written or rolled.
+     */
+    void write(CharSequence text) throws IOException {
+        LocalDate today = LocalDate.now();
+        if (size > 0 && ((rotation.daily() && !today.equals(day)) || size + encodedLength(text) > rotation.maxBytes())) {
+            roll();
+        }
+        day = today;
+
+        encoder.reset();
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(chars, encoded, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(encoded);
+            }
+            writeEncoded();
+            if (result.isUnderflow()) {
+                break;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+        }
+    }
+
+    /**
+     * @return The number of bytes the text takes in UTF-8, counting a lone surrogate as its one byte replacement.
+     */
+    static long encodedLength(CharSequence text) {
+        long length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void writeEncoded() throws IOException {
+        encoded.flip();
+        while (encoded.hasRemaining()) {
+            size += channel.write(encoded);
+        }
+        encoded.clear();
+    }
+
+    /**
+     * Renames the current file after its day and an index, opens a new one, and hands the rolled
+     * file to the compressor.
+     */
+    private void roll() throws IOException {
+        channel.close();
+        int index = 1;
+        for (Path rolled : rolledFiles()) {
+            Matcher matcher = rolledPattern.matcher(rolled.getFileName().toString());
+            if (matcher.matches() && matcher.group(1).equals(day.toString())) {
+                index = Math.max(index, Integer.parseInt(matcher.group(2)) + 1);
+            }
+        }
+        Path rolled = directory.resolve(name + "-" + day + "." + index + extension);
+        Files.move(current, rolled);
+        open();
+        compressor.execute(() -> compress(rolled));
+    }
+
+    /**
+     * Gzips a rolled file next to itself, then applies the retention count. Runs on the compressor thread.
+     */
+    private void compress(Path rolled) {
+        Path compressed = rolled.resolveSibling(rolled.getFileName() + ".gz");
+        Path temp = rolled.resolveSibling(rolled.getFileName() + ".gz.tmp");
+        try {
+            try (InputStream in = Files.newInputStream(rolled);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), ENCODE_BUFFER_SIZE)) {
+                in.transferTo(out);
+            }
+            Files.move(temp, compressed);
+            Files.delete(rolled);
+        } catch (IOException e) {
+            System.err.println("Failed to compress rolled log " + rolled + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // The next start tries again
+            }
+        }
+
+        List<Path> rolledFiles = rolledFiles();
+        for (int i = rotation.retainedFiles(); i < rolledFiles.size(); i++) {
+            try {
+                Files.deleteIfExists(rolledFiles.get(i));
+            } catch (IOException e) {
+                System.err.println("Failed to delete old log " + rolledFiles.get(i) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return The rolled files, newest first.
+     */
+    private List<Path> rolledFiles() {
+        List<Path> rolled = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + "-*")) {
+            for (Path file : files) {
+                if (rolledPattern.matcher(file.getFileName().toString()).matches()) {
+                    rolled.add(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list logs in " + directory + ": " + e.getMessage());
+        }
+        rolled.sort(Comparator.comparing((Path file) -> day(file)).thenComparingInt(this::index).reversed());
+        return rolled;
+    }
+
+    private String day(Path rolled) {
+        Matcher matcher = rolledPattern.matcher(rolled.getFileName().toString());
+        return matcher.matches() ? matcher.group(1) : "";
+    }
+
+    private int index(Path rolled) {
+        Matcher matcher = rolledPattern.matcher(rolled.getFileName().toString());
+        return matcher.matches() ? Integer.parseInt(matcher.group(2)) : 0;
+    }
+
+    /**
+     * Closes the current file and waits a little for pending compressions.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        compressor.shutdown();
+        try {
+            compressor.awaitTermination(COMPRESSION_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -6,5 +6,7 @@ package org.breachinthecontainment.launcher_client;
  */
 public enum SetupResult {
     SUCCESS,
-    FAILURE
+    FAILURE,
+    CHECKSUM_MISMATCH,
+    CANCELLED
 }
@@ -0,0 +1,339 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary index of the installed files, in the spirit of git's index: for every file it records the
+ * size, modification time and file key (the inode on Unix) seen when the file was last known to be
+ * good, along with the SHA-256 of its content. A file whose stat data did not change is trusted
+ * without being read, so verifying a warm installation costs one stat call per file.
+ * <p>
+ * The index also remembers which launcher image the bundled data.zip was read from and its
+ * checksum, so an unchanged launcher does not hash the bundled archive again on every start.
+ */
+public class StatIndex {
+
+    private static final int MAGIC = 0x42495458; // "BITX"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, Entry> entries;
+    private ImageStamp image;
+    private String archiveChecksum;
+    // When the index was last written; files modified since cannot be trusted on stat data alone
+    private long writtenNanos;
+
+    /**
+     * Stat data of a file, compared to decide whether its content may have changed.
+     *
+     * @param size The file size.
+     * @param modifiedNanos The modification time in nanoseconds since the epoch.
+     * @param fileKey The file key (device and inode on Unix), or an empty string if the platform has none.
+     */
+    public record FileStat(long size, long modifiedNanos, String fileKey) {
+        static FileStat of(BasicFileAttributes attributes) {
+            Object key = attributes.fileKey();
+            return new FileStat(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    key == null ? "" : key.toString());
+        }
+
+        static FileStat read(Path file) throws IOException {
+            return of(Files.readAttributes(file, BasicFileAttributes.class));
+        }
+    }
+
+    /**
+     * Identifies the file the launcher's resources are read from: the jar, the runtime image of a
+     * packaged launcher, or the resource file itself when running from a build directory.
+     *
+     * @param path The file.
+     * @param stat Its stat data.
+     */
+    public record ImageStamp(String path, FileStat stat) {
+    }
+
+    private record Entry(FileStat stat, byte[] hash) {
+    }
+
+    private StatIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Finds the file a bundled resource is read from and records its stat data.
+     *
+     * @param resourcePath The path of the resource within the application's bundle.
+     * @return The stamp of the file holding the resource, or null if it cannot be determined.
+     */
+    public static ImageStamp stampImage(String resourcePath) {
+        URL url = StatIndex.class.getResource(resourcePath);
+        if (url == null) {
+            return null;
+        }
+        try {
+            Path file = switch (url.getProtocol()) {
+                case "file" -> Paths.get(url.toURI());
+                // jar:file:/path/launcher.jar!/data.zip
+                case "jar" -> Paths.get(URI.create(url.getPath().substring(0, url.getPath().indexOf("!/"))));
+                // Packaged runtimes keep every module's resources in a single image file
+                case "jrt" -> Paths.get(System.getProperty("java.home"), "lib", "modules");
+                default -> null;
+            };
+            return file == null ? null : new ImageStamp(file.toAbsolutePath().toString(), FileStat.read(file));
+        } catch (IOException | URISyntaxException | IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates an index that knows no file yet, for an installation made before indexes existed.
+     * Verifying it checks every file against the CRC32 of the manifest and fills it in.
+     *
+     * @param archiveChecksum The checksum of the installed archive.
+     * @return The empty index.
+     */
+    public static StatIndex empty(String archiveChecksum) {
+        StatIndex index = new StatIndex(new TreeMap<>());
+        index.archiveChecksum = archiveChecksum;
+        return index;
+    }
+
+    /**
+     * Builds the index of an installation that was just completed. The SHA-256 of a file extracted
+     * by this run is taken from the manifest without reading the file, since extraction checked the
+     * content against it. A file left in place is only trusted on the previous index's word if its
+     * stat data did not change, and any other file is hashed.
+     *
+     * @param dataDir The data directory.
+     * @param manifest The manifest of the installed archive.
+     * @param extracted The names of the files this run extracted.
+     * @param previous The index of the installation that was updated, may be null.
+     * @param image The stamp of the launcher image the archive came from, may be null.
+     * @return The new index, to be saved.
+     * @throws IOException If an installed file cannot be read.
+     */
+    public static StatIndex build(Path dataDir, InstallManifest manifest, Set<String> extracted,
+                                  StatIndex previous, ImageStamp image) throws IOException {
+        StatIndex index = new StatIndex(new TreeMap<>());
+        index.image = image;
+        index.archiveChecksum = manifest.getArchiveChecksum();
+        Path root = dataDir.toAbsolutePath().normalize();
+        for (Map.Entry<String, InstallManifest.Entry> installed : manifest.getEntries().entrySet()) {
+            String name = installed.getKey();
+            Path file = ZipExtractor.resolve(root, name);
+            FileStat stat = FileStat.read(file);
+            byte[] digest = null;
+            if (extracted.contains(name)) {
+                String hash = installed.getValue().getSha256();
+                digest = hash != null ? HexFormat.of().parseHex(hash) : null;
+            } else if (previous != null) {
+                Entry known = previous.entries.get(name);
+                if (known != null && known.stat().equals(stat) && stat.modifiedNanos() < previous.writtenNanos) {
+                    digest = known.hash();
+                }
+            }
+            if (digest == null) {
+                digest = HashEngine.hash(file, EnumSet.of(HashEngine.Algorithm.SHA256)).sha256();
+            }
+            index.entries.put(name, new Entry(stat, digest));
+        }
+        return index;
+    }
+
+    /**
+     * Loads an index written with {@link #save(Path)}.
+     *
+     * @param file The index file.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The index, or null if it does not exist or cannot be read.
+     */
+    public static StatIndex load(Path file, LauncherLogger logger) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.warn(Category.INSTALLER, "Ignoring stat index with unsupported format: " + file);
+                return null;
+            }
+            StatIndex index = new StatIndex(new TreeMap<>());
+            index.writtenNanos = in.readLong();
+            index.archiveChecksum = in.readUTF();
+            if (in.readBoolean()) {
+                index.image = new ImageStamp(in.readUTF(), readStat(in));
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                FileStat stat = readStat(in);
+                byte[] hash = new byte[HASH_LENGTH];
+                in.readFully(hash);
+                index.entries.put(name, new Entry(stat, hash));
+            }
+            return index;
+        } catch (IOException e) {
+            logger.warn(Category.INSTALLER, "Failed to read stat index " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index next to its final location and renames it into place.
+     *
+     * @param file The index file.
+     * @throws IOException If the index cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            // Taken before anything is written, so a file modified while saving is never trusted
+            writtenNanos = System.currentTimeMillis() * 1_000_000L;
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(writtenNanos);
+            out.writeUTF(archiveChecksum);
+            out.writeBoolean(image != null);
+            if (image != null) {
+                out.writeUTF(image.path());
+                writeStat(out, image.stat());
+            }
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeStat(out, entry.getValue().stat());
+                out.write(entry.getValue().hash());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the checksum of the bundled archive recorded for a launcher image, so it does not
+     * have to be hashed again.
+     *
+     * @param current The stamp of the running launcher image, may be null.
+     * @return The recorded checksum, or null if the image changed or is unknown.
+     */
+    public String archiveChecksumFor(ImageStamp current) {
+        return current != null && current.equals(image) ? archiveChecksum : null;
+    }
+
+    /**
+     * Records the launcher image the bundled archive was read from and the archive's checksum.
+     *
+     * @param current The stamp of the running launcher image, may be null.
+     * @param checksum The checksum of the archive bundled in that image.
+     * @return true if this changed the index, meaning it should be saved.
+     */
+    public boolean stampArchive(ImageStamp current, String checksum) {
+        if (checksum.equals(archiveChecksum) && (current == null || current.equals(image))) {
+            return false;
+        }
+        image = current;
+        archiveChecksum = checksum;
+        return true;
+    }
+
+    /**
+     * @param name The name of an installed file.
+     * @return The SHA-256 the file had when it was last known to be good, or null if it is not indexed.
+     */
+    public String hashOf(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : HashEngine.toHex(entry.hash());
+    }
+
+    /**
+     * Checks the installed files against the index. Files whose stat data is unchanged are trusted,
+     * the others are hashed, and files that are missing or whose content changed are reported.
+     * Files that only had their stat data change are updated in the index.
+     *
+     * @param dataDir The data directory.
+     * @param manifest The manifest of the installed archive; files it lists that the index lacks
+     *                 are checked against their CRC32.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return The verification outcome.
+     * @throws IOException If a file exists but cannot be read.
+     */
+    public Verification verify(Path dataDir, InstallManifest manifest, LauncherLogger logger) throws IOException {
+        Path root = dataDir.toAbsolutePath().normalize();
+        Set<String> damaged = new TreeSet<>();
+        int rehashed = 0;
+        boolean updated = false;
+        for (Map.Entry<String, InstallManifest.Entry> installed : manifest.getEntries().entrySet()) {
+            String name = installed.getKey();
+            Path file = ZipExtractor.resolve(root, name);
+            FileStat stat;
+            try {
+                stat = FileStat.read(file);
+            } catch (NoSuchFileException e) {
+                damaged.add(name);
+                continue;
+            }
+
+            Entry known = entries.get(name);
+            if (known != null && known.stat().equals(stat) && stat.modifiedNanos() < writtenNanos) {
+                continue;
+            }
+
+            // Stat data changed, or the file was modified too close to the last save to tell
+            rehashed++;
+            HashEngine.Digests digests = HashEngine.hash(file, EnumSet.of(HashEngine.Algorithm.CRC32, HashEngine.Algorithm.SHA256));
+            boolean intact = known != null
+                    ? Arrays.equals(digests.sha256(), known.hash())
+                    : stat.size() == installed.getValue().getSize() && digests.crc32() == installed.getValue().getCrc();
+            if (intact) {
+                entries.put(name, new Entry(stat, digests.sha256()));
+                updated = true;
+            } else {
+                damaged.add(name);
+            }
+        }
+        logger.info(Category.INSTALLER, "Verified " + manifest.getEntries().size() + " installed files: " + rehashed + " rehashed, "
+                + damaged.size() + " missing or modified.");
+        return new Verification(damaged, updated);
+    }
+
+    /**
+     * The outcome of {@link #verify}.
+     *
+     * @param damaged Installed files that are missing or whose content changed.
+     * @param updated Whether stat data was refreshed, meaning the index should be saved.
+     */
+    public record Verification(Set<String> damaged, boolean updated) {
+    }
+
+    private static FileStat readStat(DataInputStream in) throws IOException {
+        return new FileStat(in.readLong(), in.readLong(), in.readUTF());
+    }
+
+    private static void writeStat(DataOutputStream out, FileStat stat) throws IOException {
+        out.writeLong(stat.size());
+        out.writeLong(stat.modifiedNanos());
+        out.writeUTF(stat.fileKey());
+    }
+}
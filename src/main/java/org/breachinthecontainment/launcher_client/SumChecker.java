@@ -1,25 +1,42 @@
 package org.breachinthecontainment.launcher_client;
 
-import java.io.FileInputStream;
 import java.io.InputStream;
-import java.security.MessageDigest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class SumChecker {
 
     // Replace this with the actual checksum you generate for your original data.zip
     public static final String EXPECTED_CHECKSUM = "51d57b3cab39402eee05cf443cdf10d299328bdf5b8d6a746123110502241026";
 
+    private static final Set<HashEngine.Algorithm> SHA256 = EnumSet.of(HashEngine.Algorithm.SHA256);
+
     public static void main(String[] args) {
+        if (args.length >= 3 && (args[0].equals("manifest") || args[0].equals("verify"))) {
+            System.exit(tree(args));
+        }
         if (args.length != 1) {
             System.out.println("Usage: java SumChecker <path-to-data.zip>");
+            System.out.println("       java SumChecker manifest <directory> <output.json> [crc32,sha1,sha256] [threads]");
+            System.out.println("       java SumChecker verify <directory> <manifest.json> [threads]");
             System.exit(1);
         }
 
         String filePath = args[0];
 
         try {
-            String actualChecksum = calculateSHA256(filePath);
-            System.out.println("Calculated checksum: " + actualChecksum);
+            InstallProgress progress = new InstallProgress(null);
+            Path file = Paths.get(filePath);
+            progress.beginPhase("Hashing " + file.getFileName(), Files.size(file), 1);
+            // One read of the file yields every digest a release manifest may need
+            HashEngine.Digests digests = HashEngine.hash(file, 0, Long.MAX_VALUE, EnumSet.allOf(HashEngine.Algorithm.class), progress);
+            progress.addEntries(1);
+            String actualChecksum = digests.hex(HashEngine.Algorithm.SHA256);
+            System.out.println("Calculated checksum: " + actualChecksum + " (" + digests.size() + " bytes)");
+            System.out.println("SHA-1: " + digests.hex(HashEngine.Algorithm.SHA1) + ", CRC32: " + digests.hex(HashEngine.Algorithm.CRC32));
 
             if (actualChecksum.equalsIgnoreCase(EXPECTED_CHECKSUM)) {
                 System.out.println("Checksum matches! Data integrity verified.");
@@ -32,6 +49,60 @@ public class SumChecker {
         }
     }
 
+    /**
+     * Writes the manifest of a directory tree, or verifies a tree against one.
+     *
+     * @return The exit status: 0 if the manifest was written or the tree matches it.
+     */
+    private static int tree(String[] args) {
+        boolean manifest = args[0].equals("manifest");
+        Path root = Paths.get(args[1]);
+        Path manifestFile = Paths.get(args[2]);
+        Set<HashEngine.Algorithm> algorithms = EnumSet.allOf(HashEngine.Algorithm.class);
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 3; i < args.length; i++) {
+                if (args[i].chars().allMatch(Character::isDigit)) {
+                    threads = Integer.parseInt(args[i]);
+                } else if (manifest) {
+                    algorithms = parseAlgorithms(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                }
+            }
+
+            if (manifest) {
+                TreeManifest tree = TreeManifest.build(root, algorithms, threads,
+                        stats -> System.out.println("Hashed " + stats.summary()));
+                tree.save(manifestFile);
+                System.out.println("Manifest written to " + manifestFile + " (" + tree.getFiles().size() + " files, "
+                        + tree.getAlgorithms() + ")");
+                return 0;
+            }
+
+            TreeManifest.Comparison comparison = TreeManifest.load(manifestFile).verify(root, threads,
+                    stats -> System.out.println("Hashed " + stats.summary()));
+            comparison.missing().forEach(name -> System.out.println("missing   " + name));
+            comparison.modified().forEach(name -> System.out.println("modified  " + name));
+            comparison.extra().forEach(name -> System.out.println("extra     " + name));
+            System.out.println(comparison.isEmpty() ? "Tree matches the manifest."
+                    : "Tree does NOT match the manifest: " + comparison.missing().size() + " missing, "
+                    + comparison.modified().size() + " modified, " + comparison.extra().size() + " extra.");
+            return comparison.isEmpty() ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Error processing " + root + ": " + e.getMessage());
+            return 2;
+        }
+    }
+
+    private static Set<HashEngine.Algorithm> parseAlgorithms(String list) {
+        Set<HashEngine.Algorithm> algorithms = EnumSet.noneOf(HashEngine.Algorithm.class);
+        for (String name : list.split(",")) {
+            algorithms.add(HashEngine.Algorithm.valueOf(name.trim().toUpperCase().replace("-", "")));
+        }
+        return algorithms;
+    }
+
     /**
      * Calculates the SHA-256 checksum of a file located at the given filepath.
      *
@@ -40,9 +111,27 @@ public class SumChecker {
      * @throws Exception If an error occurs while reading the file or computing the digest.
      */
     public static String calculateSHA256(String filepath) throws Exception {
-        try (InputStream fis = new FileInputStream(filepath)) {
-            return calculateSHA256(fis);
+        return calculateSHA256(filepath, null);
+    }
+
+    /**
+     * Calculates the SHA-256 checksum of a file, publishing the hashed bytes as a new progress phase.
+     *
+     * @param filepath The path to the file.
+     * @param progress Receives the number of bytes hashed, may be null.
+     * @return The SHA-256 checksum as a hex string.
+     * @throws Exception If an error occurs while reading the file or computing the digest.
+     */
+    public static String calculateSHA256(String filepath, InstallProgress progress) throws Exception {
+        Path file = Paths.get(filepath);
+        if (progress != null) {
+            progress.beginPhase("Hashing " + file.getFileName(), Files.size(file), 1);
         }
+        String checksum = HashEngine.hash(file, 0, Long.MAX_VALUE, SHA256, progress).hex(HashEngine.Algorithm.SHA256);
+        if (progress != null) {
+            progress.addEntries(1);
+        }
+        return checksum;
     }
 
     /**
@@ -54,19 +143,28 @@ public class SumChecker {
      * @throws Exception If an error occurs while reading the stream or computing the digest.
      */
     public static String calculateSHA256(InputStream is) throws Exception {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] byteBuffer = new byte[1024];
-        int bytesRead;
-        while ((bytesRead = is.read(byteBuffer)) != -1) {
-            digest.update(byteBuffer, 0, bytesRead);
-        }
-        byte[] hashedBytes = digest.digest();
+        return calculateSHA256(is, null);
+    }
 
-        // Convert the byte array to a hex string
-        StringBuilder sb = new StringBuilder();
-        for (byte b : hashedBytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+    /**
+     * Calculates the SHA-256 checksum from an InputStream, publishing the hashed bytes.
+     *
+     * @param is InputStream of the data to checksum.
+     * @param progress Receives the number of bytes hashed, may be null.
+     * @return The SHA-256 checksum as a hex string.
+     * @throws Exception If an error occurs while reading the stream or computing the digest.
+     */
+    public static String calculateSHA256(InputStream is, InstallProgress progress) throws Exception {
+        return HashEngine.hash(is, SHA256, progress).hex(HashEngine.Algorithm.SHA256);
+    }
+
+    /**
+     * Converts a digest to its lowercase hex representation.
+     *
+     * @param hashedBytes The digest bytes.
+     * @return The digest as a hex string.
+     */
+    public static String toHex(byte[] hashedBytes) {
+        return HashEngine.toHex(hashedBytes);
     }
 }
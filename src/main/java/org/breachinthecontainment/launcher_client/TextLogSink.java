@@ -0,0 +1,105 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The human-readable log: one {@code [yyyy-MM-dd HH:mm:ss] [LEVEL] [category] text key=value} line
+ * per message, written to a rolling file and echoed to the console.
+ */
+final class TextLogSink implements LogSink {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final RollingLogFile file;
+    private final StringBuilder batch = new StringBuilder();
+
+    // Messages of the same second share their timestamp
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTimestamp;
+
+    /**
+     * @param file The file to write to; the sink closes it.
+     */
+    TextLogSink(RollingLogFile file) {
+        this.file = file;
+    }
+
+    @Override
+    public void append(LauncherLogger.Message message) {
+        long second = Math.floorDiv(message.epochNanos(), 1_000_000_000L);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedTimestamp = timestamp(message);
+        }
+        appendLine(batch, cachedTimestamp, message);
+        batch.append(System.lineSeparator());
+    }
+
+    @Override
+    public int pending() {
+        return batch.length();
+    }
+
+    @Override
+    public void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            // Rolling over happens here, on the writer thread, so callers of log() never wait for it
+            file.write(batch);
+        } catch (IOException e) {
+            System.err.println("Failed to write to log file " + file.path() + ": " + e.getMessage());
+        }
+        // Also print to console for immediate feedback, one write per batch
+        System.out.print(batch);
+        batch.setLength(0);
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close log file " + file.path() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Formats a message without the timestamp cache, for use outside the writer thread.
+     *
+     * @param message The message.
+     * @return The log line, without line separator.
+     */
+    static String format(LauncherLogger.Message message) {
+        StringBuilder line = new StringBuilder(64 + message.text().length());
+        appendLine(line, timestamp(message), message);
+        return line.toString();
+    }
+
+    /**
+     * @return The time of the message as written in the log, to the second.
+     */
+    static String timestamp(LauncherLogger.Message message) {
+        Instant instant = Instant.ofEpochSecond(0, message.epochNanos());
+        return DATE_TIME_FORMATTER.format(instant.atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * Appends the log line of a message, without line separator.
+     *
+     * @param timestamp The {@link #timestamp(LauncherLogger.Message)} of the message.
+     */
+    static void appendLine(StringBuilder line, String timestamp, LauncherLogger.Message message) {
+        line.append('[').append(timestamp).append("] [").append(message.level()).append("] [")
+                .append(message.category().label()).append("] ").append(message.text());
+        Object[] fields = message.fields();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            line.append(' ').append(fields[i]).append('=').append(fields[i + 1]);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.breachinthecontainment.launcher_client;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sizes and hashes of every file of a directory tree, for release tooling. The tree is walked by a
+ * {@link TreeWalker}, and files are hashed concurrently with every requested algorithm in a single
+ * read each. The manifest is written as JSON with its files sorted by path,
+ * so the same tree always produces the same bytes.
+ */
+public class TreeManifest {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private int formatVersion = FORMAT_VERSION;
+    private List<HashEngine.Algorithm> algorithms = new ArrayList<>();
+    private Map<String, Entry> files = new TreeMap<>();
+
+    /**
+     * Size and hashes of a file; hashes that were not requested are absent.
+     */
+    public static class Entry {
+        private long size;
+        private String crc32;
+        private String sha1;
+        private String sha256;
+
+        private Entry(HashEngine.Digests digests, Set<HashEngine.Algorithm> algorithms) {
+            size = digests.size();
+            crc32 = algorithms.contains(HashEngine.Algorithm.CRC32) ? digests.hex(HashEngine.Algorithm.CRC32) : null;
+            sha1 = algorithms.contains(HashEngine.Algorithm.SHA1) ? digests.hex(HashEngine.Algorithm.SHA1) : null;
+            sha256 = algorithms.contains(HashEngine.Algorithm.SHA256) ? digests.hex(HashEngine.Algorithm.SHA256) : null;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @param algorithm An algorithm.
+         * @return The hash recorded with this algorithm, null if it was not requested.
+         */
+        String hash(HashEngine.Algorithm algorithm) {
+            return switch (algorithm) {
+                case CRC32 -> crc32;
+                case SHA1 -> sha1;
+                case SHA256 -> sha256;
+            };
+        }
+
+        boolean sameContent(Entry other, Set<HashEngine.Algorithm> algorithms) {
+            if (size != other.size) {
+                return false;
+            }
+            for (HashEngine.Algorithm algorithm : algorithms) {
+                if (!hash(algorithm).equalsIgnoreCase(other.hash(algorithm))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Throughput of a walk over a tree.
+     *
+     * @param files The number of files hashed.
+     * @param bytes The number of bytes hashed.
+     * @param nanos The time the walk took.
+     * @param threads The number of worker threads.
+     */
+    public record Stats(long files, long bytes, long nanos, int threads) {
+        /**
+         * @return A one line summary of the throughput.
+         */
+        public String summary() {
+            double seconds = Math.max(nanos, 1) / 1e9;
+            return String.format("%d files, %d bytes in %d ms with %d threads: %.1f MiB/s, %.0f files/s",
+                    files, bytes, nanos / 1_000_000, threads, bytes / seconds / (1024 * 1024), files / seconds);
+        }
+    }
+
+    /**
+     * Differences between a tree and its manifest.
+     *
+     * @param missing Files of the manifest absent from the tree.
+     * @param modified Files whose size or a hash differs.
+     * @param extra Files of the tree absent from the manifest.
+     */
+    public record Comparison(Set<String> missing, Set<String> modified, Set<String> extra) {
+        public boolean isEmpty() {
+            return missing.isEmpty() && modified.isEmpty() && extra.isEmpty();
+        }
+    }
+
+    private TreeManifest() {
+    }
+
+    /**
+     * Walks a tree and hashes every regular file in it.
+     *
+     * @param root The root of the tree; paths in the manifest are relative to it and use '/'.
+     * @param algorithms The digests to record for every file.
+     * @param parallelism The number of worker threads.
+     * @param statsListener Receives the throughput of the walk, may be null.
+     * @return The manifest of the tree.
+     * @throws IOException If a directory cannot be listed or a file cannot be read.
+     */
+    public static TreeManifest build(Path root, Set<HashEngine.Algorithm> algorithms, int parallelism,
+                                     Consumer<Stats> statsListener) throws IOException {
+        long start = System.nanoTime();
+        Set<HashEngine.Algorithm> requested = EnumSet.copyOf(algorithms);
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        AtomicLong bytes = new AtomicLong();
+        TreeWalker walker = new TreeWalker(root.toAbsolutePath().normalize(), (name, file, attributes) -> {
+            if (!attributes.isRegularFile()) {
+                return;
+            }
+            Entry entry = new Entry(HashEngine.hash(file, requested), requested);
+            entries.put(name, entry);
+            bytes.addAndGet(entry.size);
+        });
+        int threads = walker.walk(parallelism);
+
+        TreeManifest manifest = new TreeManifest();
+        manifest.algorithms.addAll(requested);
+        manifest.files.putAll(entries);
+        if (statsListener != null) {
+            statsListener.accept(new Stats(entries.size(), bytes.get(), System.nanoTime() - start, threads));
+        }
+        return manifest;
+    }
+
+    /**
+     * Compares a tree with this manifest, hashing its files with the algorithms the manifest records.
+     *
+     * @param root The root of the tree.
+     * @param parallelism The number of worker threads.
+     * @param statsListener Receives the throughput of the walk, may be null.
+     * @return The differences, empty if the tree matches.
+     * @throws IOException If a directory cannot be listed or a file cannot be read.
+     */
+    public Comparison verify(Path root, int parallelism, Consumer<Stats> statsListener) throws IOException {
+        long start = System.nanoTime();
+        Set<HashEngine.Algorithm> requested = algorithms.isEmpty()
+                ? EnumSet.noneOf(HashEngine.Algorithm.class) : EnumSet.copyOf(algorithms);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        Set<String> modified = ConcurrentHashMap.newKeySet();
+        Set<String> extra = ConcurrentHashMap.newKeySet();
+        AtomicLong hashed = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        TreeWalker walker = new TreeWalker(root.toAbsolutePath().normalize(), (name, file, attributes) -> {
+            if (!attributes.isRegularFile()) {
+                return;
+            }
+            Entry expected = files.get(name);
+            if (expected == null) {
+                extra.add(name);
+                return;
+            }
+            seen.add(name);
+            // A different size settles it without reading the file
+            if (attributes.size() != expected.size) {
+                modified.add(name);
+                return;
+            }
+            Entry actual = new Entry(HashEngine.hash(file, requested), requested);
+            hashed.incrementAndGet();
+            bytes.addAndGet(actual.size);
+            if (!expected.sameContent(actual, requested)) {
+                modified.add(name);
+            }
+        });
+        int threads = walker.walk(parallelism);
+
+        Set<String> missing = new TreeSet<>(files.keySet());
+        missing.removeAll(seen);
+        if (statsListener != null) {
+            statsListener.accept(new Stats(hashed.get(), bytes.get(), System.nanoTime() - start, threads));
+        }
+        return new Comparison(missing, new TreeSet<>(modified), new TreeSet<>(extra));
+    }
+
+    /**
+     * Loads a manifest written with {@link #save(Path)}. Every file must hold a hash for each
+     * algorithm the manifest records, and none other, so a file cannot pass verification because
+     * a hash was left out.
+     *
+     * @param file The manifest file.
+     * @return The manifest.
+     * @throws IOException If the file cannot be read, is not a tree manifest or lacks a hash.
+     */
+    public static TreeManifest load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            TreeManifest manifest = gson.fromJson(reader, TreeManifest.class);
+            if (manifest == null || manifest.formatVersion != FORMAT_VERSION || manifest.files == null
+                    || manifest.algorithms == null || manifest.algorithms.contains(null)) {
+                throw new IOException("Unsupported tree manifest: " + file);
+            }
+            for (Map.Entry<String, Entry> entry : manifest.files.entrySet()) {
+                if (entry.getValue() == null) {
+                    throw new IOException("Tree manifest " + file + " has no size for " + entry.getKey());
+                }
+                for (HashEngine.Algorithm algorithm : HashEngine.Algorithm.values()) {
+                    if (manifest.algorithms.contains(algorithm) != (entry.getValue().hash(algorithm) != null)) {
+                        throw new IOException("Tree manifest " + file + " records " + manifest.algorithms + " but "
+                                + entry.getKey() + " has " + (entry.getValue().hash(algorithm) != null ? "an extra " : "no ")
+                                + algorithm + " hash");
+                    }
+                }
+            }
+            return manifest;
+        } catch (JsonParseException e) {
+            throw new IOException("Failed to read tree manifest " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the manifest next to its final location and renames it into place.
+     *
+     * @param file The manifest file.
+     * @throws IOException If the manifest cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            gson.toJson(this, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public List<HashEngine.Algorithm> getAlgorithms() {
+        return algorithms;
+    }
+
+    public Map<String, Entry> getFiles() {
+        return files;
+    }
+}
@@ -0,0 +1,223 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Visits the files of a directory tree from a fork-join pool. Each directory forks a task per
+ * subdirectory and hands its files to workers in batches, so large and deep trees keep every
+ * worker busy without a task per small file. A known list of files can be visited the same way,
+ * split in halves until it fits a batch, without listing any directory.
+ */
+final class TreeWalker {
+
+    // A batch is handed to a worker once it holds this many files or bytes
+    private static final int BATCH_FILES = 32;
+    private static final long BATCH_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Receives the files of the tree, concurrently from the workers of the pool.
+     */
+    interface Visitor {
+        /**
+         * @param name The path of the file relative to the root, with '/' as separator.
+         * @param file The file.
+         * @param attributes The attributes of the file itself, not of a link target.
+         * @throws IOException To stop the walk; the first failure is thrown by the walk once its
+         *                     running tasks returned.
+         */
+        void visit(String name, Path file, BasicFileAttributes attributes) throws IOException;
+
+        /**
+         * Called when a directory cannot be listed.
+         *
+         * @throws IOException To stop the walk, which is what happens unless overridden.
+         */
+        default void listFailed(Path directory, IOException e) throws IOException {
+            throw e;
+        }
+    }
+
+    /**
+     * A file found by listing its directory.
+     */
+    private record Listed(String name, Path file, BasicFileAttributes attributes) {
+    }
+
+    private final Path root;
+    private final Visitor visitor;
+    // The first failure stops the walk; later ones are dropped
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * @param root The normalized absolute root of the tree.
+     * @param visitor Receives every file.
+     */
+    TreeWalker(Path root, Visitor visitor) {
+        this.root = root;
+        this.visitor = visitor;
+    }
+
+    /**
+     * Visits every file under the root, skipping directories.
+     *
+     * @param parallelism The number of worker threads.
+     * @return The number of worker threads used.
+     * @throws IOException If the root is not a directory, or the first failure of the visitor.
+     */
+    int walk(int parallelism) throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Not a directory: " + root);
+        }
+        return run(new DirectoryTask(root), parallelism);
+    }
+
+    /**
+     * Visits the given files of the tree. Names that escape the root or have no file are skipped.
+     *
+     * @param names Paths relative to the root, with '/' as separator.
+     * @param parallelism The number of worker threads.
+     * @return The number of worker threads used.
+     * @throws IOException The first failure of the visitor.
+     */
+    int visit(List<String> names, int parallelism) throws IOException {
+        return run(new NamesTask(names), parallelism);
+    }
+
+    private int run(ForkJoinTask<?> task, int parallelism) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return pool.getParallelism();
+    }
+
+    private void visit(String name, Path file, BasicFileAttributes attributes) {
+        if (failure.get() != null) {
+            return;
+        }
+        try {
+            visitor.visit(name, file, attributes);
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * Lists a directory, forking a task per subdirectory and per batch of files.
+     */
+    // Fork-join tasks are never serialized
+    @SuppressWarnings("serial")
+    private final class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+
+        private DirectoryTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            if (failure.get() != null) {
+                return;
+            }
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            List<Listed> batch = new ArrayList<>();
+            long batchBytes = 0;
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        tasks.add(new DirectoryTask(child).fork());
+                        continue;
+                    }
+                    String name = root.relativize(child).toString().replace(child.getFileSystem().getSeparator(), "/");
+                    batch.add(new Listed(name, child, attributes));
+                    batchBytes += attributes.size();
+                    if (batch.size() >= BATCH_FILES || batchBytes >= BATCH_BYTES) {
+                        tasks.add(new FileTask(batch).fork());
+                        batch = new ArrayList<>();
+                        batchBytes = 0;
+                    }
+                }
+            } catch (IOException e) {
+                try {
+                    visitor.listFailed(directory, e);
+                } catch (IOException stop) {
+                    failure.compareAndSet(null, stop);
+                }
+            }
+            if (!batch.isEmpty()) {
+                new FileTask(batch).compute();
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+    }
+
+    /**
+     * Visits a batch of listed files.
+     */
+    @SuppressWarnings("serial")
+    private final class FileTask extends RecursiveAction {
+        private final List<Listed> files;
+
+        private FileTask(List<Listed> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            for (Listed file : files) {
+                visit(file.name(), file.file(), file.attributes());
+            }
+        }
+    }
+
+    /**
+     * Visits a list of names, splitting it in halves while it is larger than a batch.
+     */
+    @SuppressWarnings("serial")
+    private final class NamesTask extends RecursiveAction {
+        private final List<String> names;
+
+        private NamesTask(List<String> names) {
+            this.names = names;
+        }
+
+        @Override
+        protected void compute() {
+            if (names.size() > BATCH_FILES) {
+                int middle = names.size() / 2;
+                invokeAll(new NamesTask(names.subList(0, middle)), new NamesTask(names.subList(middle, names.size())));
+                return;
+            }
+            for (String name : names) {
+                Path file;
+                BasicFileAttributes attributes;
+                try {
+                    file = ZipExtractor.resolve(root, name);
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+                visit(name, file, attributes);
+            }
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package org.breachinthecontainment.launcher_client;
 
+import fr.litarvan.openauth.microsoft.MicrosoftAuthResult;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.image.Image;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -12,13 +16,31 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
 
-import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 public class UI {
 
     private static LauncherLogger logger;
     private static boolean isSignedIn = false;
+    // How often the setup progress is refreshed
+    private static final long PROGRESS_REFRESH_NANOS = 100_000_000L;
+    // How long exiting waits for a cancelled setup to reach a resumable state
+    private static final long SETUP_CANCEL_WAIT_MILLIS = 5_000L;
+
+    // Setup runs in the background, Play stays disabled until it succeeded; only touched on the FX thread
+    private static boolean setupComplete = false;
+    private static Button playButton;
+    private static VBox setupStatus;
+    private static InstallProgress setupProgress;
+    private static Thread setupThread;
+    // The last lines of the session's log, for the log window
+    private static LogTail logTail;
+    // The sign-in in progress, cancelled by pressing the button again or exiting; only touched on the FX thread
+    private static CompletableFuture<MicrosoftAuthResult> pendingSignIn;
+    private static Button signInButton;
 
     public static void setLogger(LauncherLogger appLogger) {
         logger = appLogger;
@@ -26,46 +48,140 @@ public class UI {
 
     public static void startApplicationFlow(Stage primaryStage, String launcherDirectory, LauncherLogger appLogger) {
         logger = appLogger;
-
-        try (InputStream dataZipStream = UI.class.getResourceAsStream("/data.zip")) {
-            if (dataZipStream == null) {
-                logger.log("Failed to find data.zip resource.");
-                showSimpleAlertDialog("Setup Failed", "data.zip resource not found.", logger);
-                cleanExit();
+        logTail = logger.openTail(LogViewer.TAIL_LINES);
+
+        // The main window comes first, the game data is verified and installed behind it
+        InstallProgress progress = new InstallProgress(logger);
+        ProgressBar progressBar = new ProgressBar(ProgressIndicator.INDETERMINATE_PROGRESS);
+        progressBar.setPrefWidth(360);
+        Label phaseLabel = new Label("Preparing game data");
+        Label detailLabel = new Label("");
+        VBox status = new VBox(5, phaseLabel, progressBar, detailLabel);
+        status.setAlignment(Pos.CENTER);
+        status.setStyle("-fx-padding: 10;");
+        setupStatus = status;
+        setupProgress = progress;
+        showMainWindow(primaryStage);
+
+        // The installer publishes from its own threads, the window only samples it a few times per second
+        AnimationTimer refresher = new AnimationTimer() {
+            private long lastUpdate;
+
+            @Override
+            public void handle(long now) {
+                if (now - lastUpdate < PROGRESS_REFRESH_NANOS) {
+                    return;
+                }
+                lastUpdate = now;
+                InstallProgress.Snapshot snapshot = progress.snapshot();
+                phaseLabel.setText(snapshot.phase());
+                progressBar.setProgress(snapshot.fraction() >= 0 ? snapshot.fraction() : ProgressIndicator.INDETERMINATE_PROGRESS);
+                detailLabel.setText(describeProgress(snapshot));
+            }
+        };
+        refresher.start();
+
+        Thread installer = new Thread(() -> {
+            SetupResult result;
+            try {
+                // Installer hashes data.zip while extracting it, so the archive is only read once
+                result = Installer.setup(launcherDirectory, logger, progress);
+            } catch (Exception e) {
+                logger.error(Category.UI, "Exception during setup: " + e.getMessage());
+                e.printStackTrace();
+                Platform.runLater(() -> {
+                    refresher.stop();
+                    showSimpleAlertDialog("Setup Failed", "Error preparing data.zip: " + e.getMessage(), logger);
+                    cleanExit();
+                });
                 return;
             }
 
-            String checksum = SumChecker.calculateSHA256(dataZipStream);
-            logger.log("Calculated checksum for embedded data.zip: " + checksum);
+            Platform.runLater(() -> {
+                refresher.stop();
+                switch (result) {
+                    case SUCCESS -> {
+                        setupComplete = true;
+                        if (playButton != null) {
+                            playButton.setDisable(false);
+                        }
+                        status.setVisible(false);
+                        status.setManaged(false);
+                        logger.info(Category.UI, "Game data ready, Play enabled.");
+                    }
+                    case CHECKSUM_MISMATCH -> {
+                        showSimpleAlertDialog("Setup Failed", "Embedded data.zip checksum mismatch. Setup aborted.", logger);
+                        cleanExit();
+                    }
+                    case FAILURE -> {
+                        showSimpleAlertDialog("Setup Failed", "Failed to prepare game data. Please check logs for details.", logger);
+                        cleanExit();
+                    }
+                    // Only happens while exiting, nothing is left to report
+                    case CANCELLED -> logger.info(Category.UI, "Setup cancelled before completion.");
+                }
+            });
+        }, "installer");
+        installer.setDaemon(true);
+        setupThread = installer;
+        installer.start();
+    }
 
-            if (!checksum.equalsIgnoreCase(SumChecker.EXPECTED_CHECKSUM)) {
-                logger.log("Checksum mismatch! Data integrity verification failed.");
-                showSimpleAlertDialog("Setup Failed", "Embedded data.zip checksum mismatch. Setup aborted.", logger);
-                cleanExit();
-                return;
-            }
+    /**
+     * Formats the processed amount, throughput and time left of a progress snapshot for display.
+     */
+    private static String describeProgress(InstallProgress.Snapshot snapshot) {
+        StringBuilder text = new StringBuilder(formatBytes(snapshot.processedBytes()));
+        if (snapshot.totalBytes() > 0) {
+            text.append(" / ").append(formatBytes(snapshot.totalBytes()));
+        }
+        if (snapshot.totalEntries() > 1) {
+            text.append(" - ").append(snapshot.processedEntries()).append(" / ").append(snapshot.totalEntries()).append(" files");
+        }
+        if (snapshot.bytesPerSecond() > 0) {
+            text.append(" - ").append(formatBytes((long) snapshot.bytesPerSecond())).append("/s");
+        }
+        if (snapshot.secondsLeft() >= 0) {
+            long seconds = snapshot.secondsLeft();
+            text.append(" - ").append(seconds >= 60 ? seconds / 60 + " min " + seconds % 60 + " s" : seconds + " s").append(" left");
+        }
+        return text.toString();
+    }
 
-            boolean setupSuccess = Installer.setup(launcherDirectory, logger);
-            if (setupSuccess) {
-                showMainWindow(primaryStage);
-            } else {
-                showSimpleAlertDialog("Setup Failed", "Failed to prepare game data. Please check logs for details.", logger);
-                cleanExit();
-            }
-        } catch (Exception e) {
-            logger.log("Exception during checksum verification: " + e.getMessage());
-            e.printStackTrace();
-            showSimpleAlertDialog("Setup Failed", "Error verifying data.zip checksum: " + e.getMessage(), logger);
-            cleanExit();
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return bytes / 1024 + " KiB";
         }
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
     }
 
     private static void cleanExit() {
+        if (pendingSignIn != null) {
+            pendingSignIn.cancel(false);
+        }
+        cancelSetup();
         if (logger != null) logger.close();
         Platform.exit();
         System.exit(0);
     }
 
+    /**
+     * Stops a setup still running in the background and waits a little for it to stop, so that
+     * the next start resumes from its journal rather than from a file half written.
+     */
+    private static void cancelSetup() {
+        Thread thread = setupThread;
+        if (thread == null || !thread.isAlive()) {
+            return;
+        }
+        setupProgress.cancel();
+        try {
+            thread.join(SETUP_CANCEL_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public static void showMainWindow(Stage stage) {
         stage.setOnCloseRequest(event -> cleanExit());
 
@@ -74,7 +190,7 @@ public class UI {
             stage.getIcons().add(icon);
         } catch (Exception e) {
             System.err.println("Failed to load icon: " + e.getMessage());
-            if (logger != null) logger.log("Failed to load main window icon: " + e.getMessage());
+            if (logger != null) logger.warn(Category.UI, "Failed to load main window icon: " + e.getMessage());
         }
 
         Label title = new Label("BREACH IN THE CONTAINMENT");
@@ -84,19 +200,49 @@ public class UI {
 
         Button playBtn = new Button("Play!");
         playBtn.setStyle("-fx-font-size: 16pt");
+        playBtn.setDisable(!setupComplete);
+        playButton = playBtn;
 
         Button signInBtn = new Button("Sign in with Microsoft");
         signInBtn.setStyle("-fx-font-size: 12pt;");
         signInBtn.setOnAction(event -> {
-            if (logger != null) logger.log("Sign In button clicked.");
-            boolean result = MicrosoftAuth.signIn();
-            isSignedIn = result;
-            showSimpleAlertDialog("Microsoft Sign-In", isSignedIn
-                    ? "You are connected to Microsoft!"
-                    : "You are not connected to Microsoft.", logger);
+            if (logger != null) logger.debug(Category.UI, "Sign In button clicked.");
+            if (pendingSignIn != null) {
+                // Pressed again while signing in: give up on this attempt
+                pendingSignIn.cancel(false);
+                return;
+            }
+            signInBtn.setText("Cancel sign-in");
+            CompletableFuture<MicrosoftAuthResult> signIn = MicrosoftAuth.signInAsync();
+            pendingSignIn = signIn;
+            // The window keeps running while the webview and the auth requests are in progress
+            signIn.whenCompleteAsync((result, error) -> {
+                pendingSignIn = null;
+                updateSignInState();
+                if (error instanceof CancellationException) {
+                    return;
+                }
+                showSimpleAlertDialog("Microsoft Sign-In", error == null
+                        ? "You are connected to Microsoft!"
+                        : "You are not connected to Microsoft.\n\n" + error.getMessage(), logger);
+            }, Platform::runLater);
         });
 
         playBtn.setOnAction(event -> {
+            if (!setupComplete) {
+                return;
+            }
+            CompletableFuture<Boolean> autoLogin = MicrosoftAuth.autoLogin();
+            if (!isSignedIn && !autoLogin.isDone()) {
+                // The saved session is still being checked, carry on once it is
+                playBtn.setDisable(true);
+                autoLogin.whenCompleteAsync((signedIn, error) -> {
+                    playBtn.setDisable(false);
+                    updateSignInState();
+                    playBtn.fire();
+                }, Platform::runLater);
+                return;
+            }
             if (!isSignedIn) {
                 showSimpleAlertDialog("Microsoft Account Error",
                         "You need to connect to your Microsoft account to verify that you actually have Minecraft.\n\n" +
@@ -108,12 +254,22 @@ public class UI {
             }
         });
 
+        signInButton = signInBtn;
+        updateSignInState();
+        // The saved session is tried in the background since startup, the window shows its outcome
+        MicrosoftAuth.autoLogin().whenCompleteAsync((signedIn, error) -> updateSignInState(), Platform::runLater);
+
         Button quitBtn = new Button("Quit");
         quitBtn.setStyle("-fx-font-size: 12pt; -fx-padding: 5 10;");
         quitBtn.setOnAction(event -> cleanExit());
 
+        Button logsBtn = new Button("Logs");
+        logsBtn.setStyle("-fx-font-size: 12pt; -fx-padding: 5 10;");
+        logsBtn.setDisable(logTail == null);
+        logsBtn.setOnAction(event -> LogViewer.show(stage, logTail));
+
         BorderPane root = new BorderPane();
-        HBox topLeftBox = new HBox(quitBtn);
+        HBox topLeftBox = new HBox(10, quitBtn, logsBtn);
         topLeftBox.setAlignment(Pos.TOP_LEFT);
         topLeftBox.setStyle("-fx-padding: 10;");
         root.setTop(topLeftBox);
@@ -122,13 +278,16 @@ public class UI {
         centerLayout.setAlignment(Pos.TOP_CENTER);
         centerLayout.setStyle("-fx-padding: 30;");
         root.setCenter(centerLayout);
+        if (setupStatus != null) {
+            root.setBottom(setupStatus);
+        }
 
-        Scene scene = new Scene(root, 450, 300);
+        Scene scene = new Scene(root, 450, setupStatus != null ? 380 : 300);
         stage.setTitle("Espresso Loader");
         stage.setScene(scene);
         stage.show();
 
-        logger.log("Main application window shown.");
+        logger.info(Category.UI, "Main application window shown.");
 
         Theme.Mode mode = Theme.detectSystemTheme();
         String stylesheet = switch (mode) {
@@ -138,6 +297,23 @@ public class UI {
         scene.getStylesheets().add(UI.class.getResource(stylesheet).toExternalForm());
     }
 
+    /**
+     * Shows on the sign-in button whether the player is signed in. Must run on the FX thread.
+     */
+    private static void updateSignInState() {
+        isSignedIn = MicrosoftAuth.isSignedIn();
+        if (signInButton == null || pendingSignIn != null) {
+            return;
+        }
+        if (isSignedIn) {
+            signInButton.setText("Signed in as " + MicrosoftAuth.getUsername());
+        } else if (!MicrosoftAuth.autoLogin().isDone()) {
+            signInButton.setText("Signing in...");
+        } else {
+            signInButton.setText("Sign in with Microsoft");
+        }
+    }
+
     private static void showSimpleAlertDialog(String title, String message, LauncherLogger appLogger) {
         Stage alertStage = new Stage();
         alertStage.initModality(Modality.APPLICATION_MODAL);
@@ -149,7 +325,7 @@ public class UI {
             alertStage.getIcons().add(icon);
         } catch (Exception e) {
             System.err.println("Failed to load icon for alert window: " + e.getMessage());
-            if (appLogger != null) appLogger.log("Failed to load alert window icon: " + e.getMessage());
+            if (appLogger != null) appLogger.warn(Category.UI, "Failed to load alert window icon: " + e.getMessage());
         }
 
         Label msgLabel = new Label(message);
@@ -179,7 +355,7 @@ public class UI {
             errorWindow.getIcons().add(icon);
         } catch (Exception e) {
             System.err.println("Failed to load icon for error window: " + e.getMessage());
-            if (logger != null) logger.log("Failed to load error window icon: " + e.getMessage());
+            if (logger != null) logger.warn(Category.UI, "Failed to load error window icon: " + e.getMessage());
         }
 
         Label errorMessage = new Label("This is a placeholder error because nothing has been developed yet!");
@@ -0,0 +1,383 @@
+package org.breachinthecontainment.launcher_client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Read-only view of a zip file on disk, backed by a memory mapping.
+ * The central directory is parsed directly from the mapping, including ZIP64 records, and
+ * archives larger than 2 GiB are mapped as several segments.
+ * <p>
+ * Entries are indexed by name when the archive is opened, so a single entry can be looked up and
+ * read without touching the rest of the archive. Reads are safe from several threads.
+ */
+public class ZipArchive implements Closeable {
+
+    // Compression methods supported by the extractor
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    // A single MappedByteBuffer cannot exceed 2 GiB, so larger archives are mapped in 1 GiB segments
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+    private final List<Entry> entries;
+    private final Map<String, Entry> entriesByName;
+
+    /**
+     * An entry of the central directory.
+     *
+     * @param name The entry name, directories end with a slash.
+     * @param method The compression method, {@link #STORED} or {@link #DEFLATED} for supported entries.
+     * @param crc The CRC32 of the uncompressed content.
+     * @param compressedSize The number of bytes stored in the archive.
+     * @param size The number of bytes once extracted.
+     * @param localHeaderOffset The position of the entry's local header in the archive.
+     */
+    public record Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    private ZipArchive(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+
+        int count = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+        }
+
+        this.entries = Collections.unmodifiableList(readCentralDirectory());
+        this.entriesByName = HashMap.newHashMap(entries.size());
+        for (Entry entry : entries) {
+            // Like java.util.zip, the last of several entries with the same name wins
+            entriesByName.put(entry.name(), entry);
+        }
+    }
+
+    /**
+     * Opens and maps a zip file.
+     *
+     * @param file The zip file.
+     * @return The opened archive, which must be closed.
+     * @throws IOException If the file cannot be read or is not a valid zip file.
+     */
+    public static ZipArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new ZipArchive(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException io ? io : new IOException("Invalid zip file " + file + ": " + e, e);
+        }
+    }
+
+    /**
+     * @return Every entry of the central directory, in archive order.
+     */
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Looks up an entry by name in constant time.
+     *
+     * @param name The entry name, directories end with a slash.
+     * @return The entry, or null if the archive has no such entry.
+     */
+    public Entry entry(String name) {
+        return entriesByName.get(name);
+    }
+
+    /**
+     * Opens a stream over the uncompressed content of an entry, read straight from the mapping.
+     *
+     * @param entry An entry of this archive.
+     * @return A stream that must be closed to release its inflater.
+     * @throws IOException If the local header is invalid or the compression method is not supported.
+     */
+    public InputStream openStream(Entry entry) throws IOException {
+        long offset = dataOffset(entry);
+        return switch (entry.method()) {
+            case STORED -> new RangeInputStream(offset, entry.size(), false);
+            case DEFLATED -> {
+                Inflater inflater = new Inflater(true);
+                yield new InflaterInputStream(new RangeInputStream(offset, entry.compressedSize(), true), inflater, STREAM_BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end();
+                        }
+                    }
+                };
+            }
+            default -> throw new IOException("Unsupported compression method " + entry.method() + " for " + entry.name());
+        };
+    }
+
+    /**
+     * Reads the whole content of an entry and checks it against the size and CRC32 of the central directory.
+     *
+     * @param entry An entry of this archive.
+     * @return The uncompressed content.
+     * @throws IOException If the entry cannot be read, is too large for an array or is corrupted.
+     */
+    public byte[] read(Entry entry) throws IOException {
+        if (entry.size() > Integer.MAX_VALUE - 8) {
+            throw new IOException("Entry too large to be read into memory: " + entry.name());
+        }
+        byte[] content;
+        try (InputStream stream = openStream(entry)) {
+            content = stream.readNBytes((int) entry.size());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if (content.length != entry.size() || crc.getValue() != entry.crc()) {
+            throw new IOException("Corrupted zip entry " + entry.name());
+        }
+        return content;
+    }
+
+    /**
+     * Finds where the content of an entry starts, by skipping its local header.
+     *
+     * @param entry An entry of this archive.
+     * @return The position of the first content byte.
+     * @throws IOException If the local header is invalid.
+     */
+    public long dataOffset(Entry entry) throws IOException {
+        long header = entry.localHeaderOffset();
+        if (readInt(header) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header for " + entry.name());
+        }
+        return header + LOCAL_HEADER_SIZE + readShort(header + 26) + readShort(header + 28);
+    }
+
+    /**
+     * Returns a read-only view over part of the mapping. The view never crosses a segment boundary,
+     * so it may be shorter than requested; callers loop until they consumed what they need.
+     *
+     * @param position The position of the first byte.
+     * @param maxLength The maximum number of bytes wanted.
+     * @return A direct buffer over the archive content, positioned at zero.
+     */
+    public ByteBuffer slice(long position, long maxLength) {
+        int segment = (int) (position / SEGMENT_SIZE);
+        int offset = (int) (position % SEGMENT_SIZE);
+        int length = (int) Math.min(maxLength, segments[segment].capacity() - offset);
+        return segments[segment].slice(offset, length);
+    }
+
+    /**
+     * Copies a range of the archive to a channel, letting the operating system move the bytes
+     * without going through the Java heap when it can.
+     *
+     * @param position The position of the first byte.
+     * @param count The number of bytes to copy.
+     * @param target The channel to write to.
+     * @throws IOException If the copy fails.
+     */
+    public void transferTo(long position, long count, FileChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of archive at " + position);
+            }
+            position += transferred;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<Entry> readCentralDirectory() throws IOException {
+        long eocd = findEndOfCentralDirectory();
+        long count = readShort(eocd + 10);
+        long directoryOffset = readUnsignedInt(eocd + 16);
+
+        long locator = eocd - 20;
+        if (locator >= 0 && readInt(locator) == ZIP64_EOCD_LOCATOR_SIGNATURE) {
+            long zip64Eocd = readLong(locator + 8);
+            if (readInt(zip64Eocd) != ZIP64_EOCD_SIGNATURE) {
+                throw new IOException("Invalid ZIP64 end of central directory record");
+            }
+            count = readLong(zip64Eocd + 32);
+            directoryOffset = readLong(zip64Eocd + 48);
+        }
+
+        List<Entry> result = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE));
+        long position = directoryOffset;
+        for (long i = 0; i < count; i++) {
+            if (readInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid central directory header at " + position);
+            }
+            int flags = readShort(position + 8);
+            int method = readShort(position + 10);
+            long crc = readUnsignedInt(position + 16);
+            long compressedSize = readUnsignedInt(position + 20);
+            long uncompressedSize = readUnsignedInt(position + 24);
+            int nameLength = readShort(position + 28);
+            int extraLength = readShort(position + 30);
+            int commentLength = readShort(position + 32);
+            long localHeaderOffset = readUnsignedInt(position + 42);
+
+            if ((flags & 1) != 0) {
+                throw new IOException("Encrypted zip entries are not supported");
+            }
+
+            long name = position + 46;
+            long extra = name + nameLength;
+            long extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = readShort(extra);
+                int length = readShort(extra + 2);
+                if (id == ZIP64_EXTRA_ID) {
+                    // Only the fields whose 32-bit value overflowed are present, in this order
+                    long field = extra + 4;
+                    if (uncompressedSize == 0xFFFFFFFFL) {
+                        uncompressedSize = readLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = readLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == 0xFFFFFFFFL) {
+                        localHeaderOffset = readLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            result.add(new Entry(readString(name, nameLength), method, crc, compressedSize, uncompressedSize, localHeaderOffset));
+            position = extraEnd + commentLength;
+        }
+        return result;
+    }
+
+    /**
+     * Streams a range of the mapping. Raw deflate data may need one extra byte to signal its end, so
+     * a padding byte can be appended.
+     */
+    private final class RangeInputStream extends InputStream {
+        private long position;
+        private long remaining;
+        private boolean padding;
+
+        private RangeInputStream(long position, long length, boolean padding) {
+            this.position = position;
+            this.remaining = length;
+            this.padding = padding;
+        }
+
+        @Override
+        public int read() {
+            if (remaining > 0) {
+                remaining--;
+                return readByte(position++);
+            }
+            if (padding) {
+                padding = false;
+                return 0;
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                if (!padding) {
+                    return -1;
+                }
+                padding = false;
+                buffer[offset] = 0;
+                return 1;
+            }
+            ByteBuffer content = slice(position, Math.min(length, remaining));
+            int count = content.remaining();
+            content.get(buffer, offset, count);
+            position += count;
+            remaining -= count;
+            return count;
+        }
+    }
+
+    private long findEndOfCentralDirectory() throws IOException {
+        // The record is followed by a comment of at most 65535 bytes
+        long lowest = Math.max(0, size - EOCD_SIZE - 0xFFFF);
+        for (long position = size - EOCD_SIZE; position >= lowest; position--) {
+            if (readInt(position) == EOCD_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new IOException("End of central directory not found, not a zip file");
+    }
+
+    private int readByte(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE)) & 0xFF;
+    }
+
+    private int readShort(long position) {
+        return readByte(position) | readByte(position + 1) << 8;
+    }
+
+    private int readInt(long position) {
+        return readShort(position) | readShort(position + 2) << 16;
+    }
+
+    private long readUnsignedInt(long position) {
+        return readInt(position) & 0xFFFFFFFFL;
+    }
+
+    private long readLong(long position) {
+        return readUnsignedInt(position) | readUnsignedInt(position + 4) << 32;
+    }
+
+    private String readString(long position, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) readByte(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
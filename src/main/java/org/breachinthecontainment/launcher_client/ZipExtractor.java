@@ -0,0 +1,466 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.breachinthecontainment.launcher_client.LauncherLogger.Category;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Extracts a zip archive that is available on disk using random access to its central directory.
+ * After the whole directory tree has been created in a single pass, deflated entries are inflated
+ * concurrently on a bounded pool of platform threads, straight from the memory-mapped archive.
+ * Stored entries are copied by the operating system from virtual threads, without touching the heap.
+ * Every entry is checked against its CRC32 in the same pass that writes it.
+ */
+public class ZipExtractor {
+
+    // Size of the direct buffer each inflating worker writes through
+    private static final int BUFFER_SIZE = 256 * 1024;
+    // Stored entries run on virtual threads, a few more of them than inflaters can be in flight
+    private static final int COPIES_PER_WORKER = 4;
+
+    private static final Set<OpenOption> WRITE_OPTIONS = Set.of(
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+    /**
+     * Summary of an extraction run.
+     *
+     * @param entries Number of file entries written.
+     * @param bytes Number of uncompressed bytes written.
+     * @param nanos Wall-clock duration of the run.
+     */
+    public record Stats(int entries, long bytes, long nanos) {
+    }
+
+    /**
+     * Callback invoked from the extraction workers once an entry has been completely written.
+     */
+    @FunctionalInterface
+    public interface EntryListener {
+        void entryExtracted(ZipArchive.Entry entry) throws IOException;
+    }
+
+    /**
+     * Extracts an archive using one worker per available processor.
+     *
+     * @param archive The zip file to extract.
+     * @param outputDir The directory where the contents of the zip should be extracted.
+     * @param logger An instance of LauncherLogger for file logging.
+     * @return Statistics about the extraction.
+     * @throws IOException If the archive cannot be read or an entry cannot be written.
+     */
+    public static Stats extract(Path archive, Path outputDir, LauncherLogger logger) throws IOException {
+        return extract(archive, outputDir, Runtime.getRuntime().availableProcessors(), logger);
+    }
+
+    /**
+     * Extracts an archive with a bounded number of workers.
+     *
+     * @param archive The zip file to extract.
+     * @param outputDir The directory where the contents of the zip should be extracted.
+     * @param workers Maximum number of entries inflated at the same time.
+     * @param logger An instance of LauncherLogger for file logging, may be null.
+     * @return Statistics about the extraction.
+     * @throws IOException If the archive cannot be read or an entry cannot be written.
+     */
+    public static Stats extract(Path archive, Path outputDir, int workers, LauncherLogger logger) throws IOException {
+        return extract(archive, outputDir, null, workers, null, null, null, null, logger);
+    }
+
+    /**
+     * Extracts the given entries of an archive, using one worker per available processor.
+     *
+     * @param archive The zip file to extract.
+     * @param outputDir The directory where the contents of the zip should be extracted.
+     * @param names The names of the file entries to extract, or null to extract every entry.
+     * @param store The object store files go through, or null to write them directly.
+     * @param manifest The manifest of the archive, whose SHA-256 of entries let the store link
+     *                 content it already holds, may be null.
+     * @param listener Notified after each file entry has been written, may be null.
+     * @param progress Receives the extracted bytes and entries, may be null.
+     * @param logger An instance of LauncherLogger for file logging, may be null.
+     * @return Statistics about the extraction.
+     * @throws IOException If the archive cannot be read or an entry cannot be written.
+     */
+    public static Stats extract(Path archive, Path outputDir, Set<String> names, ObjectStore store, InstallManifest manifest,
+                                EntryListener listener, InstallProgress progress, LauncherLogger logger) throws IOException {
+        return extract(archive, outputDir, names, Runtime.getRuntime().availableProcessors(), store, manifest, listener, progress, logger);
+    }
+
+    /**
+     * Extracts the given entries of an archive with a bounded number of workers.
+     * Existing files are overwritten. Directory entries are always created.
+     * <p>
+     * With an object store, an entry whose SHA-256 the manifest records is linked without being
+     * inflated when the store already holds that content. Other content is hashed while it is
+     * written, checked against the SHA-256 the manifest records if any, added to the store and then
+     * linked.
+     *
+     * @param archive The zip file to extract.
+     * @param outputDir The directory where the contents of the zip should be extracted.
+     * @param names The names of the file entries to extract, or null to extract every entry.
+     * @param workers Maximum number of entries inflated at the same time.
+     * @param store The object store files go through, or null to write them directly.
+     * @param manifest The manifest of the archive, whose SHA-256 of entries let the store link
+     *                 content it already holds, may be null.
+     * @param listener Notified after each file entry has been written, may be null.
+     * @param progress Receives the extracted bytes and entries, may be null.
+     * @param logger An instance of LauncherLogger for file logging, may be null.
+     * @return Statistics about the extraction.
+     * @throws IOException If the archive cannot be read or an entry cannot be written.
+     */
+    public static Stats extract(Path archive, Path outputDir, Set<String> names, int workers, ObjectStore store,
+                                InstallManifest manifest, EntryListener listener, InstallProgress progress, LauncherLogger logger) throws IOException {
+        long start = System.nanoTime();
+        Path root = outputDir.toAbsolutePath().normalize();
+        int threads = Math.max(1, workers);
+
+        try (ZipArchive zip = ZipArchive.open(archive)) {
+            List<ZipArchive.Entry> files = new ArrayList<>(zip.entries().size());
+            SortedSet<Path> directories = new TreeSet<>();
+            directories.add(root);
+
+            for (ZipArchive.Entry entry : zip.entries()) {
+                Path target = resolve(root, entry.name());
+                if (entry.isDirectory()) {
+                    directories.add(target);
+                } else if (names == null || names.contains(entry.name())) {
+                    if (entry.method() != ZipArchive.STORED && entry.method() != ZipArchive.DEFLATED) {
+                        throw new IOException("Unsupported compression method " + entry.method() + " for " + entry.name());
+                    }
+                    directories.add(target.getParent());
+                    files.add(entry);
+                }
+            }
+
+            // Sorted order guarantees a parent is created before its children
+            for (Path directory : directories) {
+                Files.createDirectories(directory);
+            }
+            if (logger != null) {
+                logger.debug(Category.INSTALLER, "Created {} directories under {}", directories.size(), root);
+            }
+
+            if (progress != null) {
+                progress.beginPhase("Extracting game data", files.stream().mapToLong(ZipArchive.Entry::size).sum(), files.size());
+            }
+
+            // Largest entries first so that no worker is left inflating a big file at the end
+            files.sort(Comparator.comparingLong(ZipArchive.Entry::compressedSize).reversed());
+
+            // Each inflating worker gets its own inflater and direct output buffer, reused across entries
+            BlockingQueue<InflateContext> contexts = new ArrayBlockingQueue<>(threads);
+            for (int i = 0; i < threads; i++) {
+                contexts.add(new InflateContext());
+            }
+            // Copies in flight are bounded by the hashers they take turns with
+            BlockingQueue<Hashers> copyHashers = new ArrayBlockingQueue<>(threads * COPIES_PER_WORKER);
+            for (int i = 0; i < threads * COPIES_PER_WORKER; i++) {
+                copyHashers.add(new Hashers());
+            }
+
+            AtomicLong bytes = new AtomicLong();
+            AtomicInteger reused = new AtomicInteger();
+            ExecutorService inflatePool = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "zip-extractor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ExecutorService copyPool = Executors.newVirtualThreadPerTaskExecutor();
+            // Checked once, so per-entry logging costs nothing unless it is enabled
+            boolean traceEntries = logger != null && logger.isEnabled(LauncherLogger.Level.TRACE, Category.INSTALLER);
+            try {
+                List<Future<?>> pending = new ArrayList<>(files.size());
+                for (ZipArchive.Entry entry : files) {
+                    Path target = resolve(root, entry.name());
+                    InstallManifest.Entry known = manifest != null ? manifest.getEntries().get(entry.name()) : null;
+                    String expected = known != null ? known.getSha256() : null;
+                    if (entry.method() == ZipArchive.STORED) {
+                        // Stored entries are pure I/O, the kernel copies them without inflating anything
+                        pending.add(copyPool.submit(() -> {
+                            Hashers hashers = copyHashers.take();
+                            try {
+                                if (traceEntries) {
+                                    logger.event(LauncherLogger.Level.TRACE, Category.INSTALLER, "Extracting.", "entry", entry.name());
+                                }
+                                bytes.addAndGet(extractEntry(zip, entry, target, expected, null, hashers, store, reused, progress));
+                                if (traceEntries) {
+                                    logger.event(LauncherLogger.Level.TRACE, Category.INSTALLER, "Extracted file.", "entry", entry.name(), "path", target);
+                                }
+                                if (listener != null) {
+                                    listener.entryExtracted(entry);
+                                }
+                                if (progress != null) {
+                                    progress.addEntries(1);
+                                }
+                            } finally {
+                                copyHashers.add(hashers);
+                            }
+                            return null;
+                        }));
+                    } else {
+                        pending.add(inflatePool.submit(() -> {
+                            InflateContext context = contexts.take();
+                            try {
+                                if (traceEntries) {
+                                    logger.event(LauncherLogger.Level.TRACE, Category.INSTALLER, "Extracting.", "entry", entry.name());
+                                }
+                                bytes.addAndGet(extractEntry(zip, entry, target, expected, context, context.hashers, store, reused, progress));
+                                if (traceEntries) {
+                                    logger.event(LauncherLogger.Level.TRACE, Category.INSTALLER, "Extracted file.", "entry", entry.name(), "path", target);
+                                }
+                                if (listener != null) {
+                                    listener.entryExtracted(entry);
+                                }
+                                if (progress != null) {
+                                    progress.addEntries(1);
+                                }
+                            } finally {
+                                contexts.add(context);
+                            }
+                            return null;
+                        }));
+                    }
+                }
+                for (Future<?> future : pending) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException io ? io : new IOException(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Extraction interrupted", e);
+            } finally {
+                inflatePool.shutdownNow();
+                copyPool.shutdownNow();
+                awaitTermination(inflatePool);
+                awaitTermination(copyPool);
+                for (InflateContext context : contexts) {
+                    context.inflater.end();
+                }
+            }
+
+            Stats stats = new Stats(files.size(), bytes.get(), System.nanoTime() - start);
+            if (logger != null) {
+                logger.event(LauncherLogger.Level.INFO, Category.INSTALLER, "Extraction finished.", "entries", stats.entries(),
+                        "bytes", stats.bytes(), "durationMs", stats.nanos() / 1_000_000, "workers", threads,
+                        "linked", store != null ? reused.get() : 0);
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Writes an entry to its target, going through the object store when there is one. The content
+     * is checked against the entry's CRC32, and its SHA-256 when going through the store, in the
+     * same pass that writes it.
+     *
+     * @param expected The SHA-256 of the content, or null if it is not known ahead.
+     * @param context The inflating worker's context, or null for stored entries.
+     * @param hashers The hashers of the worker.
+     * @param progress Receives the written bytes, may be null.
+     * @return The number of bytes the entry holds.
+     * @throws IOException If the entry cannot be written or its content does not match its CRC32 or SHA-256.
+     */
+    private static long extractEntry(ZipArchive zip, ZipArchive.Entry entry, Path target, String expected, InflateContext context,
+                                     Hashers hashers, ObjectStore store, AtomicInteger reused,
+                                     InstallProgress progress) throws IOException {
+        if (progress != null) {
+            // Entries already being written complete, the others are skipped once the installation is cancelled
+            progress.checkCancelled();
+        }
+        if (store == null) {
+            HashEngine.Hasher hasher = hashers.crc;
+            hasher.reset();
+            long size = context == null ? copyStored(zip, entry, target, hasher, progress) : inflate(zip, entry, target, context, hasher, progress);
+            checkCrc(entry, hasher.finish());
+            return size;
+        }
+
+        // Only content known by its SHA-256 can be reused without being inflated
+        String hash = expected != null ? store.lookup(expected) : null;
+        if (hash != null) {
+            reused.incrementAndGet();
+            if (progress != null) {
+                progress.addBytes(entry.size());
+            }
+        } else {
+            HashEngine.Hasher hasher = hashers.content;
+            hasher.reset();
+            Path temporary = store.newTemporaryFile();
+            try {
+                if (context == null) {
+                    copyStored(zip, entry, temporary, hasher, progress);
+                } else {
+                    inflate(zip, entry, temporary, context, hasher, progress);
+                }
+                // Checked before the content enters the store, where it would be reused by its SHA-256
+                HashEngine.Digests digests = hasher.finish();
+                checkCrc(entry, digests);
+                hash = HashEngine.toHex(digests.sha256());
+                if (expected != null && !expected.equalsIgnoreCase(hash)) {
+                    throw new IOException("Failed to extract " + entry.name() + ": SHA-256 is " + hash + " but the manifest records " + expected);
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            store.add(temporary, hash);
+        }
+        store.checkout(hash, target);
+        return entry.size();
+    }
+
+    /**
+     * Copies a stored entry straight from the archive file to its target.
+     *
+     * @param hasher Fed with the entry content.
+     * @param progress Receives the copied bytes, may be null.
+     */
+    private static long copyStored(ZipArchive zip, ZipArchive.Entry entry, Path target, HashEngine.Hasher hasher,
+                                   InstallProgress progress) throws IOException {
+        try (FileChannel out = FileChannel.open(target, WRITE_OPTIONS)) {
+            long offset = zip.dataOffset(entry);
+            zip.transferTo(offset, entry.size(), out);
+            for (long position = offset, end = offset + entry.size(); position < end; ) {
+                ByteBuffer content = zip.slice(position, end - position);
+                position += content.remaining();
+                hasher.update(content);
+            }
+        } catch (IOException e) {
+            throw new IOException("Failed to extract " + entry.name() + ": " + e.getMessage(), e);
+        }
+        if (progress != null) {
+            progress.addBytes(entry.size());
+        }
+        return entry.size();
+    }
+
+    /**
+     * Inflates a deflated entry from the mapped archive into its target.
+     *
+     * @param hasher Fed with the inflated content.
+     * @param progress Receives the inflated bytes as they are written, may be null.
+     */
+    private static long inflate(ZipArchive zip, ZipArchive.Entry entry, Path target, InflateContext context,
+                                HashEngine.Hasher hasher, InstallProgress progress) throws IOException {
+        Inflater inflater = context.inflater;
+        ByteBuffer buffer = context.buffer;
+        inflater.reset();
+
+        long position = zip.dataOffset(entry);
+        long remaining = entry.compressedSize();
+        boolean padded = false;
+        long written = 0;
+        try (FileChannel out = FileChannel.open(target, WRITE_OPTIONS)) {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (remaining > 0) {
+                        ByteBuffer input = zip.slice(position, remaining);
+                        position += input.remaining();
+                        remaining -= input.remaining();
+                        inflater.setInput(input);
+                    } else if (!padded) {
+                        // A raw deflate stream may need one extra byte to signal its end
+                        inflater.setInput(new byte[1]);
+                        padded = true;
+                    } else {
+                        throw new IOException("Unexpected end of compressed data");
+                    }
+                }
+
+                buffer.clear();
+                inflater.inflate(buffer);
+                buffer.flip();
+                hasher.update(buffer);
+                buffer.rewind();
+                int chunk = buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                written += chunk;
+                if (progress != null) {
+                    progress.addBytes(chunk);
+                }
+            }
+        } catch (IOException | DataFormatException e) {
+            throw new IOException("Failed to extract " + entry.name() + ": " + e.getMessage(), e);
+        }
+
+        if (written != entry.size()) {
+            throw new IOException("Failed to extract " + entry.name() + ": expected " + entry.size() + " bytes but got " + written);
+        }
+        return written;
+    }
+
+    private static void checkCrc(ZipArchive.Entry entry, HashEngine.Digests digests) throws IOException {
+        if (digests.crc32() != entry.crc()) {
+            throw new IOException("Failed to extract " + entry.name() + ": CRC32 is "
+                    + digests.hex(HashEngine.Algorithm.CRC32) + " but the archive records "
+                    + new HashEngine.Digests(0, entry.crc(), null, null).hex(HashEngine.Algorithm.CRC32));
+        }
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class InflateContext {
+        private final Inflater inflater = new Inflater(true);
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final Hashers hashers = new Hashers();
+    }
+
+    /**
+     * The hashers of a worker, reused across entries: the CRC32 alone when writing straight to the
+     * target, along with the SHA-256 the object store names content by otherwise.
+     */
+    private static final class Hashers {
+        private final HashEngine.Hasher crc = HashEngine.newHasher(EnumSet.of(HashEngine.Algorithm.CRC32));
+        private final HashEngine.Hasher content = HashEngine.newHasher(EnumSet.of(HashEngine.Algorithm.CRC32, HashEngine.Algorithm.SHA256));
+    }
+
+    /**
+     * Resolves an entry name against the output directory, rejecting names that would escape it.
+     *
+     * @param root The normalized absolute output directory.
+     * @param name The entry name as stored in the archive.
+     * @return The path the entry should be written to.
+     * @throws IOException If the entry points outside of the output directory.
+     */
+    static Path resolve(Path root, String name) throws IOException {
+        Path target = root.resolve(name).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("Zip entry is outside of the target directory: " + name);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,170 @@
+package org.breachinthecontainment.launcher_client;
+
+import fr.litarvan.openauth.microsoft.AuthTokens;
+import fr.litarvan.openauth.microsoft.MicrosoftAuthenticationException;
+import fr.litarvan.openauth.microsoft.model.response.MinecraftLoginResponse;
+import fr.litarvan.openauth.microsoft.model.response.MinecraftProfile;
+import fr.litarvan.openauth.microsoft.model.response.MinecraftStoreResponse;
+import fr.litarvan.openauth.microsoft.model.response.XboxLoginResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthChainTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final RecordingChain chain = new RecordingChain(executor);
+    private final Instant now = Instant.now();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void reusesValidSessionWithoutAnyRequest() throws MicrosoftAuthenticationException {
+        AuthSession saved = session(valid("xbox"), valid("xsts"), valid("minecraft"));
+
+        assertSame(saved, chain.resume(saved, now));
+        assertEquals(List.of(), chain.requests);
+        assertSame(saved, chain.session());
+    }
+
+    @Test
+    void redoesMinecraftLoginWhileXstsIsValid() throws MicrosoftAuthenticationException {
+        AuthSession resumed = chain.resume(session(valid("xbox"), valid("xsts"), expired("minecraft")), now);
+
+        assertEquals(List.of("minecraft xsts"), chain.requests.subList(0, 1));
+        assertMinecraftFinished(2);
+        assertEquals("new minecraft", resumed.minecraft().value());
+        assertTrue(resumed.isValid(now));
+        assertEquals("refresh", resumed.refreshToken());
+    }
+
+    @Test
+    void redoesXstsAndMinecraftWhileXboxIsValid() throws MicrosoftAuthenticationException {
+        AuthSession resumed = chain.resume(session(valid("xbox"), expired("xsts"), expired("minecraft")), now);
+
+        assertEquals(List.of("xsts xbox", "minecraft new xsts"), chain.requests.subList(0, 2));
+        assertMinecraftFinished(3);
+        assertEquals("xbox", resumed.xbox().value());
+        assertEquals("new xsts", resumed.xsts().value());
+    }
+
+    @Test
+    void redoesWholeChainFromRefreshTokenOnceXboxExpired() throws MicrosoftAuthenticationException {
+        AuthSession resumed = chain.resume(session(expired("xbox"), expired("xsts"), expired("minecraft")), now);
+
+        assertEquals(List.of("refresh refresh", "xbox new access", "xsts new xbox", "minecraft new xsts"),
+                chain.requests.subList(0, 4));
+        assertMinecraftFinished(5);
+        // Microsoft rotates refresh tokens, the new one is kept
+        assertEquals("new refresh", resumed.refreshToken());
+        assertTrue(resumed.isValid(now));
+    }
+
+    @Test
+    void signsInWithTheFullChainFromARefreshTokenOnly() throws MicrosoftAuthenticationException {
+        AuthSession resumed = chain.resume(AuthSession.ofRefreshToken("refresh"), now);
+
+        assertEquals(List.of("refresh refresh", "xbox new access", "xsts new xbox", "minecraft new xsts"),
+                chain.requests.subList(0, 4));
+        assertTrue(resumed.isValid(now));
+        assertSame(resumed, chain.session());
+    }
+
+    @Test
+    void redoesHopsThatExpireBeforeTheGivenTime() throws MicrosoftAuthenticationException {
+        AuthSession.Token day = new AuthSession.Token("xsts", "hash", now.plus(Duration.ofDays(1)).toEpochMilli());
+        AuthSession saved = session(day, day, valid("minecraft"));
+
+        // The Minecraft token is valid now but not in two hours, so refreshing ahead of time redoes its login
+        chain.resume(saved, now.plus(Duration.ofHours(2)));
+        assertEquals(List.of("minecraft xsts"), chain.requests.subList(0, 1));
+    }
+
+    /**
+     * Checks the entitlement and profile requests followed the Minecraft login, in either order.
+     */
+    private void assertMinecraftFinished(int requests) {
+        assertEquals(requests + 1, chain.requests.size());
+        List<String> last = chain.requests.subList(requests - 1, requests + 1);
+        assertTrue(last.contains("store new minecraft") && last.contains("profile new minecraft"), last::toString);
+    }
+
+    private AuthSession session(AuthSession.Token xbox, AuthSession.Token xsts, AuthSession.Token minecraft) {
+        return new AuthSession("refresh", xbox, xsts, minecraft, "Steve", new MinecraftProfile("id", "Steve", new MinecraftProfile.MinecraftSkin[0]));
+    }
+
+    private AuthSession.Token valid(String value) {
+        return new AuthSession.Token(value, "hash", now.plus(Duration.ofHours(1)).toEpochMilli());
+    }
+
+    private AuthSession.Token expired(String value) {
+        return new AuthSession.Token(value, "hash", now.minus(Duration.ofMinutes(1)).toEpochMilli());
+    }
+
+    /**
+     * Answers every request of the chain locally and records it with the token it was made with.
+     */
+    private static class RecordingChain extends AuthChain {
+        final List<String> requests = new CopyOnWriteArrayList<>();
+
+        RecordingChain(ExecutorService executor) {
+            super(executor, Duration.ofSeconds(10), null);
+        }
+
+        @Override
+        protected AuthTokens refreshTokens(String refreshToken) {
+            requests.add("refresh " + refreshToken);
+            return new AuthTokens("new access", "new refresh");
+        }
+
+        @Override
+        protected XboxLoginResponse xboxLiveLogin(String accessToken) {
+            requests.add("xbox " + accessToken);
+            return xboxResponse("new xbox");
+        }
+
+        @Override
+        protected XboxLoginResponse xstsLogin(String xboxLiveToken) {
+            requests.add("xsts " + xboxLiveToken);
+            return xboxResponse("new xsts");
+        }
+
+        @Override
+        protected MinecraftLoginResponse minecraftLogin(String userHash, String xstsToken) {
+            requests.add("minecraft " + xstsToken);
+            return new MinecraftLoginResponse("Steve", "new minecraft", "Bearer", 86400);
+        }
+
+        @Override
+        protected MinecraftStoreResponse minecraftStore(String minecraftAccessToken) {
+            requests.add("store " + minecraftAccessToken);
+            return new MinecraftStoreResponse(new MinecraftStoreResponse.StoreProduct[]{
+                    new MinecraftStoreResponse.StoreProduct(MINECRAFT_STORE_IDENTIFIER, "signature")}, "signature", "key");
+        }
+
+        @Override
+        protected MinecraftProfile minecraftProfile(String minecraftAccessToken) {
+            requests.add("profile " + minecraftAccessToken);
+            return new MinecraftProfile("id", "Steve", new MinecraftProfile.MinecraftSkin[0]);
+        }
+
+        private static XboxLoginResponse xboxResponse(String token) {
+            return new XboxLoginResponse(Instant.now().toString(), Instant.now().plus(Duration.ofHours(16)).toString(), token,
+                    new XboxLoginResponse.XboxLiveLoginResponseClaims(new XboxLoginResponse.XboxLiveUserInfo[]{
+                            new XboxLoginResponse.XboxLiveUserInfo("hash")}));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.breachinthecontainment.launcher_client;
+
+import fr.litarvan.openauth.microsoft.model.response.MinecraftProfile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthSessionTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void savesAndLoadsEveryHop() throws IOException {
+        AuthSession session = session(Duration.ofHours(1));
+        Path file = dir.resolve("launcher").resolve("session.json");
+        session.save(file);
+
+        AuthSession loaded = AuthSession.load(file);
+        assertEquals("refresh", loaded.refreshToken());
+        assertEquals(session.xbox(), loaded.xbox());
+        assertEquals(session.xsts(), loaded.xsts());
+        assertEquals(session.minecraft(), loaded.minecraft());
+        assertEquals("Steve", loaded.profile().getName());
+        assertEquals("Steve", loaded.toResult().getProfile().getName());
+        assertTrue(loaded.isValid(NOW));
+        assertTrue(Files.notExists(file.resolveSibling("session.json.tmp")));
+    }
+
+    @Test
+    void createsSessionFileReadableByItsOwnerOnly() throws IOException {
+        Path file = dir.resolve("session.json");
+        session(Duration.ofHours(1)).save(file);
+        // Saved again over an existing file, which must not keep wider permissions
+        session(Duration.ofHours(2)).save(file);
+
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        }
+        assertEquals(NOW.plus(Duration.ofHours(2)), AuthSession.load(file).nextExpiry());
+    }
+
+    @Test
+    void loadsSessionFileOfOlderLaunchers() throws IOException {
+        // Before the tokens were cached, session.json only held the refresh token
+        Path file = Files.writeString(dir.resolve("session.json"), "{\"refresh_token\": \"refresh\"}");
+
+        AuthSession loaded = AuthSession.load(file);
+        assertEquals("refresh", loaded.refreshToken());
+        assertNull(loaded.xbox());
+        assertNull(loaded.nextExpiry());
+        assertFalse(loaded.isValid(NOW));
+    }
+
+    @Test
+    void loadsNothingWithoutRefreshTokenAndRejectsMalformedFiles() throws IOException {
+        Path file = dir.resolve("session.json");
+        assertNull(AuthSession.load(file));
+
+        Files.writeString(file, "{}");
+        assertNull(AuthSession.load(file));
+
+        Files.writeString(file, "{ truncated");
+        assertThrows(IOException.class, () -> AuthSession.load(file));
+    }
+
+    @Test
+    void treatsTokensCloseToTheirExpiryAsExpired() {
+        AuthSession.Token token = new AuthSession.Token("token", null, NOW.plus(Duration.ofMinutes(10)).toEpochMilli());
+        assertTrue(token.isValid(NOW));
+        assertFalse(token.isValid(NOW.plus(Duration.ofMinutes(10)).minus(AuthSession.EXPIRY_MARGIN)));
+        assertFalse(new AuthSession.Token(null, null, Long.MAX_VALUE).isValid(NOW));
+
+        AuthSession session = session(Duration.ofHours(1));
+        assertTrue(session.isValid(NOW));
+        assertFalse(session(Duration.ofMinutes(1)).isValid(NOW));
+        // A session is only usable as is with the profile to launch the game with
+        assertFalse(session.withMinecraft(session.minecraft(), "Steve", null).isValid(NOW));
+    }
+
+    @Test
+    void nextExpiryIsTheEarliestCachedToken() {
+        AuthSession session = session(Duration.ofHours(1))
+                .withXsts(new AuthSession.Token("xsts", "hash", NOW.plus(Duration.ofMinutes(30)).toEpochMilli()));
+        assertEquals(NOW.plus(Duration.ofMinutes(30)), session.nextExpiry());
+    }
+
+    /**
+     * A signed-in session whose Minecraft token expires after the given time, and its Xbox Live and
+     * XSTS tokens a day later.
+     */
+    private static AuthSession session(Duration minecraftLifetime) {
+        long later = NOW.plus(Duration.ofDays(1)).toEpochMilli();
+        return new AuthSession("refresh",
+                new AuthSession.Token("xbox", "hash", later),
+                new AuthSession.Token("xsts", "hash", later),
+                new AuthSession.Token("minecraft", null, NOW.plus(minecraftLifetime).toEpochMilli()),
+                "Steve", new MinecraftProfile("id", "Steve", new MinecraftProfile.MinecraftSkin[0]));
+    }
+}
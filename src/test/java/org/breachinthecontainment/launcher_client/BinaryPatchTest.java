@@ -0,0 +1,193 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryPatchTest {
+
+    // Mirrors BinaryPatch.BLOCK_SIZE
+    private static final int BLOCK_SIZE = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEditedFile() throws IOException {
+        byte[] source = randomBytes(300_000, 1);
+        byte[] target = edit(source);
+
+        byte[] patch = create(source, target);
+        assertArrayEquals(target, apply(source, patch));
+        // Only the edits travel as literal bytes
+        assertTrue(patch.length < target.length / 10, "Patch of " + patch.length + " bytes");
+    }
+
+    @Test
+    void identicalFilesOnlyCopy() throws IOException {
+        byte[] source = randomBytes(100_000, 2);
+
+        byte[] patch = create(source, source);
+        assertArrayEquals(source, apply(source, patch));
+        assertTrue(patch.length < 200, "Patch of " + patch.length + " bytes");
+    }
+
+    @Test
+    void roundTripsEmptyFiles() throws IOException {
+        byte[] content = randomBytes(10_000, 3);
+        byte[] empty = new byte[0];
+
+        assertArrayEquals(content, apply(empty, create(empty, content)));
+        assertArrayEquals(empty, apply(content, create(content, empty)));
+        assertArrayEquals(empty, apply(empty, create(empty, empty)));
+    }
+
+    @Test
+    void roundTripsSizesAroundBlockSize() throws IOException {
+        for (int size : new int[]{1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 2 * BLOCK_SIZE, 2 * BLOCK_SIZE + 7}) {
+            byte[] source = randomBytes(size, size);
+            byte[] appended = Arrays.copyOf(source, size + 3);
+            byte[] truncated = Arrays.copyOf(source, size - 1);
+
+            assertArrayEquals(source, apply(source, create(source, source)), "Size " + size);
+            assertArrayEquals(appended, apply(source, create(source, appended)), "Size " + size);
+            assertArrayEquals(truncated, apply(source, create(source, truncated)), "Size " + size);
+            assertArrayEquals(source, apply(appended, create(appended, source)), "Size " + size);
+        }
+    }
+
+    @Test
+    void splitsLiteralsLongerThanOneDataOperation() throws IOException {
+        // Unrelated content is carried entirely as literals, in runs of at most 1 MiB
+        byte[] source = randomBytes(BLOCK_SIZE * 4, 4);
+        byte[] target = randomBytes(3 * (1 << 20) + 12_345, 5);
+
+        byte[] patch = create(source, target);
+        assertArrayEquals(target, apply(source, patch));
+    }
+
+    @Test
+    void reusesRepeatedAndMovedBlocks() throws IOException {
+        byte[] block = randomBytes(BLOCK_SIZE * 3, 6);
+        byte[] source = new byte[block.length * 2];
+        System.arraycopy(block, 0, source, 0, block.length);
+        System.arraycopy(block, 0, source, block.length, block.length);
+        byte[] target = new byte[10 + block.length * 5 / 2];
+        System.arraycopy(source, block.length / 2, target, 10, block.length * 3 / 2);
+        System.arraycopy(block, 0, target, 10 + block.length * 3 / 2, block.length);
+
+        byte[] patch = create(source, target);
+        assertArrayEquals(target, apply(source, patch));
+        assertTrue(patch.length < 1000, "Patch of " + patch.length + " bytes");
+    }
+
+    @Test
+    void headerRecordsBothHashes() throws IOException {
+        byte[] source = randomBytes(50_000, 7);
+        byte[] target = edit(source);
+
+        BinaryPatch.Header header = BinaryPatch.readHeader(new DataInputStream(new ByteArrayInputStream(create(source, target))));
+        assertEquals(sha256(source), header.sourceHash());
+        assertEquals(sha256(target), header.targetHash());
+        assertEquals(target.length, header.targetSize());
+
+        Path from = Files.write(dir.resolve("from.bin"), source);
+        String hash = BinaryPatch.apply(from, new ByteArrayInputStream(create(source, target)), dir.resolve("to.bin"), sha256(source));
+        assertEquals(sha256(target), hash);
+    }
+
+    @Test
+    void rejectsPatchForAnotherSource() throws IOException {
+        byte[] source = randomBytes(50_000, 8);
+        byte[] target = edit(source);
+        byte[] patch = create(source, target);
+
+        byte[] other = source.clone();
+        other[25_000] ^= 1;
+        Path from = Files.write(dir.resolve("other.bin"), other);
+        Path to = dir.resolve("to.bin");
+        // Caught from the header before anything is written
+        assertThrows(IOException.class, () -> BinaryPatch.apply(from, new ByteArrayInputStream(patch), to, sha256(other)));
+        assertFalse(Files.exists(to));
+        // Caught by the hash of the result when the caller does not know the source hash
+        assertThrows(IOException.class, () -> BinaryPatch.apply(from, new ByteArrayInputStream(patch), to, null));
+    }
+
+    @Test
+    void rejectsTruncatedOrForeignPatch() throws IOException {
+        byte[] source = randomBytes(50_000, 9);
+        byte[] target = edit(source);
+        byte[] patch = create(source, target);
+        Path from = Files.write(dir.resolve("from.bin"), source);
+        Path to = dir.resolve("to.bin");
+
+        for (int length : new int[]{0, 8, 80, patch.length / 2, patch.length - 1}) {
+            byte[] truncated = Arrays.copyOf(patch, length);
+            assertThrows(IOException.class, () -> BinaryPatch.apply(from, new ByteArrayInputStream(truncated), to, null),
+                    "Truncated to " + length);
+        }
+        byte[] foreign = target.clone();
+        assertThrows(IOException.class, () -> BinaryPatch.apply(from, new ByteArrayInputStream(foreign), to, null));
+    }
+
+    private byte[] create(byte[] source, byte[] target) throws IOException {
+        Path from = Files.write(dir.resolve("source.bin"), source);
+        Path to = Files.write(dir.resolve("target.bin"), target);
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        BinaryPatch.create(from, to, patch);
+        return patch.toByteArray();
+    }
+
+    private byte[] apply(byte[] source, byte[] patch) throws IOException {
+        Path from = Files.write(dir.resolve("source.bin"), source);
+        Path to = dir.resolve("patched.bin");
+        BinaryPatch.apply(from, new ByteArrayInputStream(patch), to, null);
+        return Files.readAllBytes(to);
+    }
+
+    /**
+     * Replaces, inserts and deletes a few runs of bytes, the way a new release touches a large file.
+     */
+    private static byte[] edit(byte[] source) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int third = source.length / 3;
+        out.write(source, 0, third);
+        out.writeBytes(randomBytes(100, source.length));
+        out.write(source, third + 50, third - 50);
+        out.write(source, 2 * third + 500, source.length - 2 * third - 500);
+        byte[] edited = out.toByteArray();
+        edited[edited.length / 4] ^= (byte) 0xFF;
+        return edited;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,168 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtractionJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private LauncherLogger logger;
+    private Path file;
+
+    @BeforeEach
+    void openLogger() {
+        logger = new LauncherLogger(dir.resolve("launcher").toString());
+        file = dir.resolve("data.staging.journal");
+    }
+
+    @AfterEach
+    void closeLogger() {
+        logger.close();
+    }
+
+    @Test
+    void resumesTheEntriesRecordedForTheSameArchive() throws IOException {
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            assertTrue(journal.completed().isEmpty());
+            journal.record("a.txt");
+            journal.record("dir/b.txt");
+        }
+        assertEquals("v1", ExtractionJournal.readChecksum(file));
+
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            assertEquals(Set.of("a.txt", "dir/b.txt"), journal.completed());
+            journal.record("dir/c.txt");
+            // What a previous run completed is fixed when the journal is opened
+            assertEquals(2, journal.completed().size());
+        }
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            assertEquals(Set.of("a.txt", "dir/b.txt", "dir/c.txt"), journal.completed());
+        }
+    }
+
+    @Test
+    void skipsTheLineTornByACrash() throws IOException {
+        Files.writeString(file, "# v1\na.txt\ndir/b.txt\ndir/c.t");
+
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            assertEquals(Set.of("a.txt", "dir/b.txt"), journal.completed());
+        }
+    }
+
+    @Test
+    void discardsTheJournalOfAnotherArchive() throws IOException {
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            journal.record("a.txt");
+        }
+
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v2", logger)) {
+            assertTrue(journal.completed().isEmpty());
+        }
+        assertEquals("v2", ExtractionJournal.readChecksum(file));
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v2", logger)) {
+            assertTrue(journal.completed().isEmpty());
+        }
+    }
+
+    @Test
+    void readsNoChecksumWithoutAJournal() throws IOException {
+        assertNull(ExtractionJournal.readChecksum(file));
+        Files.writeString(file, "a.txt\n");
+        assertNull(ExtractionJournal.readChecksum(file));
+    }
+
+    @Test
+    void keepsEveryEntryRecordedByConcurrentWorkers() throws Exception {
+        int workers = 4;
+        int perWorker = 500;
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                int worker = w;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < perWorker; i++) {
+                        try {
+                            journal.record("worker" + worker + "/entry" + i);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            assertEquals(workers * perWorker, journal.completed().size());
+            assertTrue(journal.completed().contains("worker3/entry499"));
+        }
+    }
+
+    @Test
+    void extractionResumesWithTheEntriesNotYetRecorded() throws IOException {
+        Path archive = dir.resolve("data.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (String name : List.of("a.txt", "b.txt", "c.txt")) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(name.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Path staging = dir.resolve("data.staging");
+
+        // The first run is killed once it has recorded one entry
+        AtomicBoolean killed = new AtomicBoolean();
+        assertThrows(IOException.class, () -> {
+            try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+                ZipExtractor.extract(archive, staging, null, 1, null, null, entry -> {
+                    if (!killed.getAndSet(true)) {
+                        journal.record(entry.name());
+                    }
+                    throw new IOException("Killed");
+                }, null, null);
+            }
+        });
+
+        Set<String> extracted = new HashSet<>();
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            Set<String> pending = new HashSet<>(Set.of("a.txt", "b.txt", "c.txt"));
+            assertEquals(1, journal.completed().size());
+            pending.removeAll(journal.completed());
+            ZipExtractor.extract(archive, staging, pending, 1, null, null, entry -> {
+                journal.record(entry.name());
+                extracted.add(entry.name());
+            }, null, null);
+            assertFalse(extracted.removeAll(journal.completed()));
+        }
+        assertEquals(2, extracted.size());
+        try (ExtractionJournal journal = ExtractionJournal.open(file, "v1", logger)) {
+            assertEquals(Set.of("a.txt", "b.txt", "c.txt"), journal.completed());
+        }
+    }
+}
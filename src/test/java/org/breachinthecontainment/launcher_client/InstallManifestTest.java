@@ -0,0 +1,160 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstallManifestTest {
+
+    private static final String A = "a".repeat(64);
+    private static final String B = "b".repeat(64);
+
+    @TempDir
+    Path dir;
+
+    private LauncherLogger logger;
+
+    @BeforeEach
+    void openLogger() {
+        logger = new LauncherLogger(dir.resolve("launcher").toString());
+    }
+
+    @AfterEach
+    void closeLogger() {
+        logger.close();
+    }
+
+    @Test
+    void listsFileEntriesOfTheArchiveOnly() throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("config/", null);
+        files.put("config/options.txt", "fov:70");
+        files.put(BinaryPatch.PATCH_DIR + "big.bin" + BinaryPatch.PATCH_SUFFIX, "patch");
+        files.put("big.bin", "content");
+        InstallManifest manifest = InstallManifest.fromArchive(zip("data.zip", files), "v1");
+
+        assertEquals("v1", manifest.getArchiveChecksum());
+        assertEquals(Set.of("config/options.txt", "big.bin"), manifest.getEntries().keySet());
+        assertEquals(6, manifest.getEntries().get("config/options.txt").getSize());
+    }
+
+    @Test
+    void diffListsChangedAddedAndRemovedEntries() throws IOException {
+        InstallManifest installed = InstallManifest.fromArchive(zip("v1.zip", Map.of(
+                "same.txt", "same", "edited.txt", "before", "resized.txt", "short", "dropped.txt", "gone")), "v1");
+        InstallManifest target = InstallManifest.fromArchive(zip("v2.zip", Map.of(
+                "same.txt", "same", "edited.txt", "after!", "resized.txt", "longer now", "added.txt", "new")), "v2");
+
+        InstallManifest.Diff diff = installed.diff(target);
+        assertEquals(Set.of("edited.txt", "resized.txt", "added.txt"), diff.changed());
+        assertEquals(Set.of("dropped.txt"), diff.removed());
+        assertTrue(target.diff(target).isEmpty());
+    }
+
+    @Test
+    void diffTellsSameSizeAndCrcApartByKnownHashes() throws IOException {
+        InstallManifest installed = manifest("v1", "{\"size\": 8, \"crc\": 42, \"sha256\": \"" + A + "\"}");
+        InstallManifest sameHash = manifest("v2", "{\"size\": 8, \"crc\": 42, \"sha256\": \"" + A + "\"}");
+        InstallManifest otherHash = manifest("v3", "{\"size\": 8, \"crc\": 42, \"sha256\": \"" + B + "\"}");
+        InstallManifest unknownHash = manifest("v4", "{\"size\": 8, \"crc\": 42}");
+
+        assertTrue(installed.diff(sameHash).isEmpty());
+        assertEquals(Set.of("file.bin"), installed.diff(otherHash).changed());
+        // Without a hash on both sides, size and CRC32 are all there is to compare
+        assertTrue(installed.diff(unknownHash).isEmpty());
+    }
+
+    @Test
+    void diffAgainstReducedManifestExtractsLeftOutEntries() throws IOException {
+        InstallManifest manifest = InstallManifest.fromArchive(zip("data.zip", Map.of("a.txt", "a", "b.txt", "b")), "v1");
+
+        InstallManifest.Diff diff = manifest.without(Set.of("a.txt")).diff(manifest);
+        assertEquals(Set.of("a.txt"), diff.changed());
+        assertTrue(diff.removed().isEmpty());
+        assertEquals(2, manifest.getEntries().size());
+    }
+
+    @Test
+    void withHashesFillsInValidHashesOnly() throws IOException {
+        InstallManifest manifest = InstallManifest.fromArchive(zip("data.zip", Map.of(
+                "a.txt", "a", "b.txt", "b", "c.txt", "c")), "v1");
+
+        InstallManifest hashed = manifest.withHashes(Map.of("a.txt", A.toUpperCase(Locale.ROOT), "b.txt", "not a hash")::get);
+        assertEquals(A, hashed.getEntries().get("a.txt").getSha256());
+        assertNull(hashed.getEntries().get("b.txt").getSha256());
+        assertNull(hashed.getEntries().get("c.txt").getSha256());
+        assertNull(manifest.getEntries().get("a.txt").getSha256());
+
+        // A hash already known is kept
+        assertEquals(A, hashed.withHashes(name -> B).getEntries().get("a.txt").getSha256());
+    }
+
+    @Test
+    void savesAndLoadsEntriesWithTheirHashes() throws IOException {
+        InstallManifest manifest = InstallManifest.fromArchive(zip("data.zip", Map.of("a.txt", "a", "b.txt", "b")), "v1")
+                .withHashes(Map.of("a.txt", A)::get);
+        Path file = dir.resolve("install-manifest.json");
+        manifest.save(file);
+
+        InstallManifest loaded = InstallManifest.load(file, logger);
+        assertEquals("v1", loaded.getArchiveChecksum());
+        assertEquals(A, loaded.getEntries().get("a.txt").getSha256());
+        assertNull(loaded.getEntries().get("b.txt").getSha256());
+        assertTrue(manifest.diff(loaded).isEmpty());
+        assertTrue(Files.notExists(file.resolveSibling("install-manifest.json.tmp")));
+    }
+
+    @Test
+    void loadDropsMalformedHashesAndRejectsOtherFormats() throws IOException {
+        InstallManifest manifest = manifest("v1", "{\"size\": 1, \"crc\": 2, \"sha256\": \"../../outside\"}");
+        assertNull(manifest.getEntries().get("file.bin").getSha256());
+        manifest = manifest("v1", "{\"size\": 1, \"crc\": 2, \"sha256\": \"" + B.toUpperCase(Locale.ROOT) + "\"}");
+        assertEquals(B, manifest.getEntries().get("file.bin").getSha256());
+
+        Path file = dir.resolve("other.json");
+        Files.writeString(file, "{\"formatVersion\": 99, \"archiveChecksum\": \"v1\", \"entries\": {}}");
+        assertNull(InstallManifest.load(file, logger));
+        Files.writeString(file, "{ truncated");
+        assertNull(InstallManifest.load(file, logger));
+        assertNull(InstallManifest.load(dir.resolve("missing.json"), logger));
+    }
+
+    private InstallManifest manifest(String checksum, String entry) throws IOException {
+        Path file = dir.resolve(checksum + ".json");
+        Files.writeString(file, "{\"formatVersion\": 1, \"archiveChecksum\": \"" + checksum + "\", \"entries\": {\"file.bin\": "
+                + entry + "}}");
+        return InstallManifest.load(file, logger);
+    }
+
+    /**
+     * Writes a zip file holding the given entries in order; a null content makes a directory entry.
+     */
+    private Path zip(String name, Map<String, String> files) throws IOException {
+        Path archive = dir.resolve(name);
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                if (file.getValue() != null) {
+                    zip.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return archive;
+    }
+}
@@ -0,0 +1,109 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogRingBufferTest {
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(4, fill(new LogRingBuffer<>(1)));
+        assertEquals(4, fill(new LogRingBuffer<>(4)));
+        assertEquals(8, fill(new LogRingBuffer<>(5)));
+        assertEquals(8, fill(new LogRingBuffer<>(8)));
+        assertEquals(16, fill(new LogRingBuffer<>(9)));
+    }
+
+    @Test
+    void pollsInOfferOrderAndReportsEmpty() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(8);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.isEmpty());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, buffer.poll());
+        }
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void wrapsAroundAfterBeingFull() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(4);
+        int next = 0;
+        int expected = 0;
+        // Many laps, each leaving the buffer full so every slot is reused at every position
+        for (int lap = 0; lap < 100; lap++) {
+            while (buffer.offer(next)) {
+                next++;
+            }
+            assertEquals(4, next - expected);
+            for (int i = 0; i < 1 + lap % 4; i++) {
+                assertEquals(expected++, buffer.poll());
+            }
+        }
+        while (!buffer.isEmpty()) {
+            assertEquals(expected++, buffer.poll());
+        }
+        assertEquals(next, expected);
+    }
+
+    @Test
+    void keepsEveryProducerInOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        LogRingBuffer<long[]> buffer = new LogRingBuffer<>(64);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    long[] element = {producer, i};
+                    while (!buffer.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long[] nextOf = new long[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            long[] element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(nextOf[(int) element[0]]++, element[1]);
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(buffer.isEmpty());
+        for (long next : nextOf) {
+            assertEquals(perProducer, next);
+        }
+    }
+
+    private static int fill(LogRingBuffer<Integer> buffer) {
+        int count = 0;
+        while (buffer.offer(count)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,226 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private LauncherLogger logger;
+
+    @BeforeEach
+    void openLogger() {
+        logger = new LauncherLogger(dir.resolve("launcher").toString());
+    }
+
+    @AfterEach
+    void closeLogger() {
+        logger.close();
+    }
+
+    @Test
+    void looksUpAddedContentByHash() throws IOException {
+        byte[] content = randomBytes(5000, 1);
+        String hash = sha256(content);
+        Path objects = dir.resolve("objects");
+
+        try (ObjectStore store = ObjectStore.open(objects, logger)) {
+            assertNull(store.lookup(hash));
+            store.add(Files.write(store.newTemporaryFile(), content), hash);
+            assertEquals(hash, store.lookup(hash));
+            assertEquals(hash, store.lookup(hash.toUpperCase(Locale.ROOT)));
+            assertArrayEquals(content, Files.readAllBytes(store.objectPath(hash)));
+
+            // Adding the same content again keeps the object that working trees link to
+            Path linked = dir.resolve("tree").resolve("linked.bin");
+            Files.createDirectories(linked.getParent());
+            store.checkout(hash, linked);
+            store.add(Files.write(store.newTemporaryFile(), content), hash);
+            assertTrue(Files.isSameFile(linked, store.objectPath(hash)));
+        }
+        // The index survives reopening the store
+        try (ObjectStore store = ObjectStore.open(objects, logger)) {
+            assertEquals(hash, store.lookup(hash));
+        }
+    }
+
+    @Test
+    void rejectsMalformedHashes() throws IOException {
+        Path outside = Files.writeString(dir.resolve("outside.txt"), "not an object");
+        try (ObjectStore store = ObjectStore.open(dir.resolve("objects"), logger)) {
+            assertNull(store.lookup(null));
+            assertNull(store.lookup("../outside.txt"));
+            assertNull(store.lookup("ab"));
+            assertNull(store.lookup("g".repeat(64)));
+        }
+        assertTrue(Files.exists(outside));
+    }
+
+    @Test
+    void rehashesTouchedObjectsAndEvictsModifiedOnes() throws IOException {
+        byte[] content = randomBytes(5000, 2);
+        String hash = sha256(content);
+        try (ObjectStore store = ObjectStore.open(dir.resolve("objects"), logger)) {
+            store.add(Files.write(store.newTemporaryFile(), content), hash);
+            Path object = store.objectPath(hash);
+
+            // Touched without being changed
+            Files.setLastModifiedTime(object, FileTime.fromMillis(Files.getLastModifiedTime(object).toMillis() - 60_000));
+            assertEquals(hash, store.lookup(hash));
+
+            // Written through a link from a working tree
+            byte[] modified = content.clone();
+            modified[100] ^= 1;
+            Files.write(object, modified);
+            Files.setLastModifiedTime(object, FileTime.fromMillis(Files.getLastModifiedTime(object).toMillis() + 60_000));
+            assertNull(store.lookup(hash));
+            assertFalse(Files.exists(object));
+        }
+    }
+
+    @Test
+    void replacesModifiedObjectWhenContentIsAddedAgain() throws IOException {
+        byte[] content = randomBytes(5000, 3);
+        String hash = sha256(content);
+        try (ObjectStore store = ObjectStore.open(dir.resolve("objects"), logger)) {
+            store.add(Files.write(store.newTemporaryFile(), content), hash);
+            Path object = store.objectPath(hash);
+            Files.write(object, randomBytes(5000, 4));
+            Files.setLastModifiedTime(object, FileTime.fromMillis(Files.getLastModifiedTime(object).toMillis() + 60_000));
+
+            store.add(Files.write(store.newTemporaryFile(), content), hash);
+            assertArrayEquals(content, Files.readAllBytes(object));
+            assertEquals(hash, store.lookup(hash));
+        }
+    }
+
+    @Test
+    void readsIndexLinesOfOlderLaunchers() throws IOException {
+        byte[] content = randomBytes(5000, 5);
+        String hash = sha256(content);
+        Path objects = dir.resolve("objects");
+        try (ObjectStore store = ObjectStore.open(objects, logger)) {
+            store.add(Files.write(store.newTemporaryFile(), content), hash);
+        }
+        long modified = Files.getLastModifiedTime(objects.resolve(hash.substring(0, 2)).resolve(hash)).toMillis();
+        // Older lines start with the size and CRC32, which no longer identify anything
+        Files.writeString(objects.resolve("index"), content.length + " " + crc(content) + " " + hash + " " + modified + "\n"
+                + "torn line\n");
+
+        try (ObjectStore store = ObjectStore.open(objects, logger)) {
+            assertEquals(hash, store.lookup(hash));
+        }
+    }
+
+    @Test
+    void keepsContentsWithSameSizeAndCrcApart() throws IOException {
+        byte[][] pair = sameSizeAndCrc();
+        assertFalse(Arrays.equals(pair[0], pair[1]));
+        assertEquals(crc(pair[0]), crc(pair[1]));
+
+        Path archive = dir.resolve("data.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("a.bin"));
+            zip.write(pair[0]);
+            zip.putNextEntry(new ZipEntry("b.bin"));
+            zip.write(pair[1]);
+        }
+        Map<String, String> hashes = Map.of("a.bin", sha256(pair[0]), "b.bin", sha256(pair[1]));
+        InstallManifest manifest = InstallManifest.fromArchive(archive, "checksum").withHashes(hashes::get);
+
+        try (ObjectStore store = ObjectStore.open(dir.resolve("objects"), logger)) {
+            // Once without hashes, then twice with them: every run must put each content in its own file
+            for (InstallManifest known : new InstallManifest[]{null, manifest, manifest}) {
+                Path output = Files.createTempDirectory(dir, "data");
+                ZipExtractor.extract(archive, output, null, store, known, null, null, null);
+                assertArrayEquals(pair[0], Files.readAllBytes(output.resolve("a.bin")));
+                assertArrayEquals(pair[1], Files.readAllBytes(output.resolve("b.bin")));
+            }
+            assertNotEquals(store.lookup(hashes.get("a.bin")), store.lookup(hashes.get("b.bin")));
+        }
+    }
+
+    @Test
+    void rejectsContentThatDoesNotMatchItsKnownHash() throws IOException {
+        byte[] content = randomBytes(5000, 6);
+        Path archive = dir.resolve("data.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("a.bin"));
+            zip.write(content);
+        }
+        String wrong = sha256(randomBytes(5000, 7));
+        InstallManifest manifest = InstallManifest.fromArchive(archive, "checksum").withHashes(name -> wrong);
+
+        try (ObjectStore store = ObjectStore.open(dir.resolve("objects"), logger)) {
+            Path output = dir.resolve("data");
+            assertThrows(IOException.class, () -> ZipExtractor.extract(archive, output, null, store, manifest, null, null, null));
+            assertFalse(Files.exists(output.resolve("a.bin")));
+            assertNull(store.lookup(sha256(content)));
+        }
+    }
+
+    /**
+     * Finds two different 8-byte contents with the same CRC32, which a birthday search over 32 bits
+     * does within a few hundred thousand candidates.
+     */
+    private static byte[][] sameSizeAndCrc() {
+        Random random = new Random(42);
+        Map<Long, byte[]> seen = new HashMap<>();
+        while (true) {
+            byte[] candidate = new byte[8];
+            random.nextBytes(candidate);
+            byte[] previous = seen.putIfAbsent(crc(candidate), candidate);
+            if (previous != null && !Arrays.equals(previous, candidate)) {
+                return new byte[][]{previous, candidate};
+            }
+        }
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,196 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatIndexTest {
+
+    private static final Map<String, String> FILES = Map.of(
+            "a.txt", "first file",
+            "dir/b.txt", "second file",
+            "dir/c.txt", "third file");
+
+    @TempDir
+    Path dir;
+
+    private LauncherLogger logger;
+    private Path data;
+    private InstallManifest manifest;
+
+    @BeforeEach
+    void install() throws IOException {
+        logger = new LauncherLogger(dir.resolve("launcher").toString());
+        data = dir.resolve("data");
+        Path archive = dir.resolve("data.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (Map.Entry<String, String> file : new TreeMap<>(FILES).entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                write(file.getKey(), file.getValue());
+            }
+        }
+        manifest = InstallManifest.fromArchive(archive, "v1");
+    }
+
+    @AfterEach
+    void closeLogger() {
+        logger.close();
+    }
+
+    @Test
+    void buildHashesFilesLeftInPlaceAndTrustsManifestForExtractedOnes() throws IOException {
+        // Extraction checked a.txt against this hash, so the index records it without reading the file
+        String recorded = sha256("what the archive holds");
+        InstallManifest hashed = manifest.withHashes(Map.of("a.txt", recorded)::get);
+
+        StatIndex index = StatIndex.build(data, hashed, Set.of("a.txt", "dir/b.txt"), null, null);
+        assertEquals(recorded, index.hashOf("a.txt"));
+        // Extracted without a known hash, or not extracted by this run: hashed
+        assertEquals(sha256(FILES.get("dir/b.txt")), index.hashOf("dir/b.txt"));
+        assertEquals(sha256(FILES.get("dir/c.txt")), index.hashOf("dir/c.txt"));
+        assertNull(index.hashOf("missing.txt"));
+    }
+
+    @Test
+    void buildReusesPreviousHashesOfUnchangedFilesOnly() throws IOException {
+        StatIndex previous = saved(StatIndex.build(data, manifest, Set.of(), null, null));
+        // Rewritten in place with the same size and modification time, so its stat data did not change
+        Path edited = data.resolve("a.txt");
+        FileTime modified = Files.getLastModifiedTime(edited);
+        Files.writeString(edited, "FIRST FILE");
+        Files.setLastModifiedTime(edited, modified);
+        write("dir/b.txt", "second file, edited");
+
+        StatIndex index = StatIndex.build(data, manifest, Set.of(), previous, null);
+        assertEquals(sha256(FILES.get("a.txt")), index.hashOf("a.txt"));
+        assertEquals(sha256("second file, edited"), index.hashOf("dir/b.txt"));
+    }
+
+    @Test
+    void verifyTrustsUnchangedFilesAndReportsDamagedOnes() throws IOException {
+        StatIndex index = saved(StatIndex.build(data, manifest, Set.of(), null, null));
+
+        StatIndex.Verification clean = index.verify(data, manifest, logger);
+        assertTrue(clean.damaged().isEmpty());
+        assertFalse(clean.updated());
+
+        write("a.txt", "first file, edited");
+        Files.delete(data.resolve("dir/c.txt"));
+        StatIndex.Verification damaged = index.verify(data, manifest, logger);
+        assertEquals(Set.of("a.txt", "dir/c.txt"), damaged.damaged());
+        assertFalse(damaged.updated());
+    }
+
+    @Test
+    void verifyRefreshesFilesWhoseStatDataAloneChanged() throws IOException {
+        StatIndex index = saved(StatIndex.build(data, manifest, Set.of(), null, null));
+        age("dir/b.txt");
+
+        StatIndex.Verification touched = index.verify(data, manifest, logger);
+        assertTrue(touched.damaged().isEmpty());
+        assertTrue(touched.updated());
+        // Once saved, the refreshed stat data is trusted again
+        assertFalse(saved(index).verify(data, manifest, logger).updated());
+    }
+
+    @Test
+    void verifyChecksFilesTheIndexLacksAgainstTheirCrc() throws IOException {
+        StatIndex index = StatIndex.empty("v1");
+        // Same size as the archived content, different CRC32
+        write("dir/c.txt", "THIRD FILE");
+
+        StatIndex.Verification verification = index.verify(data, manifest, logger);
+        assertEquals(Set.of("dir/c.txt"), verification.damaged());
+        assertTrue(verification.updated());
+        assertEquals(sha256(FILES.get("a.txt")), index.hashOf("a.txt"));
+        assertNull(index.hashOf("dir/c.txt"));
+    }
+
+    @Test
+    void savesAndLoadsEntriesAndArchiveStamp() throws IOException {
+        Path file = dir.resolve("install-index.bin");
+        StatIndex.ImageStamp image = new StatIndex.ImageStamp("/opt/launcher.jar", new StatIndex.FileStat(1234, 5678, ""));
+        StatIndex index = StatIndex.build(data, manifest, Set.of(), null, image);
+        index.save(file);
+
+        StatIndex loaded = StatIndex.load(file, logger);
+        for (String name : FILES.keySet()) {
+            assertEquals(index.hashOf(name), loaded.hashOf(name));
+        }
+        assertEquals("v1", loaded.archiveChecksumFor(image));
+        assertNull(loaded.archiveChecksumFor(new StatIndex.ImageStamp("/opt/launcher.jar", new StatIndex.FileStat(1234, 9999, ""))));
+        assertNull(loaded.archiveChecksumFor(null));
+
+        assertFalse(loaded.stampArchive(image, "v1"));
+        assertTrue(loaded.stampArchive(image, "v2"));
+        assertEquals("v2", loaded.archiveChecksumFor(image));
+    }
+
+    @Test
+    void loadRejectsForeignAndTruncatedFiles() throws IOException {
+        Path file = dir.resolve("install-index.bin");
+        assertNull(StatIndex.load(file, logger));
+
+        Files.writeString(file, "not an index");
+        assertNull(StatIndex.load(file, logger));
+
+        StatIndex.build(data, manifest, Set.of(), null, null).save(file);
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 10));
+        assertNull(StatIndex.load(file, logger));
+    }
+
+    /**
+     * Saves and reloads an index, as a later start of the launcher would see it.
+     */
+    private StatIndex saved(StatIndex index) throws IOException {
+        Path file = dir.resolve("install-index.bin");
+        index.save(file);
+        return StatIndex.load(file, logger);
+    }
+
+    /**
+     * Writes a file of the data directory with a modification time well before the index is saved,
+     * since files modified around the save are never trusted on their stat data.
+     */
+    private void write(String name, String content) throws IOException {
+        Path file = data.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        age(name);
+    }
+
+    private void age(String name) throws IOException {
+        Path file = data.resolve(name);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60_000));
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HashEngine.toHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
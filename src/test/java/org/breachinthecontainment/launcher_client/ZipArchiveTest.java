@@ -0,0 +1,329 @@
+package org.breachinthecontainment.launcher_client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipArchiveTest {
+
+    // Mirrors ZipArchive.SEGMENT_SIZE
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsEntriesWrittenByZipOutputStream() throws IOException {
+        byte[] text = "Breach In The Containment\n".repeat(500).getBytes(StandardCharsets.UTF_8);
+        byte[] binary = randomBytes(70_000, 1);
+        Path file = dir.resolve("data.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("config/"));
+            zip.putNextEntry(new ZipEntry("config/deflated.txt"));
+            zip.write(text);
+            zip.putNextEntry(storedEntry("stored.bin", binary));
+            zip.write(binary);
+            zip.putNextEntry(new ZipEntry("empty.txt"));
+        }
+
+        try (ZipArchive archive = ZipArchive.open(file)) {
+            List<ZipArchive.Entry> entries = archive.entries();
+            assertEquals(List.of("config/", "config/deflated.txt", "stored.bin", "empty.txt"),
+                    entries.stream().map(ZipArchive.Entry::name).toList());
+            assertTrue(entries.get(0).isDirectory());
+            assertFalse(entries.get(1).isDirectory());
+
+            ZipArchive.Entry deflated = archive.entry("config/deflated.txt");
+            assertEquals(ZipArchive.DEFLATED, deflated.method());
+            assertEquals(text.length, deflated.size());
+            assertTrue(deflated.compressedSize() < deflated.size());
+            assertArrayEquals(text, archive.read(deflated));
+            try (InputStream stream = archive.openStream(deflated)) {
+                assertArrayEquals(text, stream.readAllBytes());
+            }
+
+            ZipArchive.Entry stored = archive.entry("stored.bin");
+            assertEquals(ZipArchive.STORED, stored.method());
+            assertEquals(crc(binary), stored.crc());
+            assertArrayEquals(binary, archive.read(stored));
+            ByteBuffer slice = archive.slice(archive.dataOffset(stored), binary.length);
+            byte[] sliced = new byte[slice.remaining()];
+            slice.get(sliced);
+            assertArrayEquals(binary, sliced);
+
+            assertArrayEquals(new byte[0], archive.read(archive.entry("empty.txt")));
+            assertNull(archive.entry("missing.txt"));
+        }
+    }
+
+    @Test
+    void findsEndRecordBehindLongestComment() throws IOException {
+        Path file = dir.resolve("comment.zip");
+        byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            zip.setComment("c".repeat(0xFFFF));
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write(content);
+        }
+
+        try (ZipArchive archive = ZipArchive.open(file)) {
+            assertEquals(1, archive.entries().size());
+            assertArrayEquals(content, archive.read(archive.entry("a.txt")));
+        }
+    }
+
+    @Test
+    void readsZip64EndRecordOfManyEntries() throws IOException {
+        // One entry more than the 16-bit count of the classic end record holds
+        int count = 0x10000;
+        Path file = dir.resolve("many.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (int i = 0; i < count; i++) {
+                zip.putNextEntry(new ZipEntry("f" + i));
+                zip.write(Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        try (ZipArchive archive = ZipArchive.open(file)) {
+            assertEquals(count, archive.entries().size());
+            assertEquals("f" + (count - 1), archive.entries().get(count - 1).name());
+            assertArrayEquals("65535".getBytes(StandardCharsets.UTF_8), archive.read(archive.entry("f65535")));
+            assertArrayEquals("0".getBytes(StandardCharsets.UTF_8), archive.read(archive.entry("f0")));
+        }
+    }
+
+    @Test
+    void readsZip64ExtraFields() throws IOException {
+        byte[] content = randomBytes(1000, 2);
+        Path file = dir.resolve("zip64.zip");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long directory = writeLocalEntry(channel, 0, "zip64.bin", content);
+            ByteBuffer central = centralHeader("zip64.bin", content, 0, true);
+            writeFully(channel, central, directory);
+            writeEndRecords(channel, directory + central.capacity(), directory, central.capacity(), 1, true);
+        }
+
+        try (ZipArchive archive = ZipArchive.open(file)) {
+            ZipArchive.Entry entry = archive.entry("zip64.bin");
+            assertEquals(content.length, entry.size());
+            assertEquals(content.length, entry.compressedSize());
+            assertEquals(0, entry.localHeaderOffset());
+            assertArrayEquals(content, archive.read(entry));
+        }
+    }
+
+    @Test
+    void readsAcrossSegmentBoundary() throws IOException {
+        // The local header starts two bytes before the end of the first segment, so both its
+        // signature and the content straddle the boundary. The file is sparse, so the gigabyte of
+        // leading zeros costs no disk space.
+        byte[] content = randomBytes(100_000, 3);
+        long header = SEGMENT_SIZE - 2;
+        Path file = dir.resolve("segments.zip");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.SPARSE)) {
+            long directory = writeLocalEntry(channel, header, "boundary.bin", content);
+            ByteBuffer central = centralHeader("boundary.bin", content, header, false);
+            writeFully(channel, central, directory);
+            writeEndRecords(channel, directory + central.capacity(), directory, central.capacity(), 1, false);
+        }
+
+        try (ZipArchive archive = ZipArchive.open(file)) {
+            ZipArchive.Entry entry = archive.entry("boundary.bin");
+            assertEquals(header, entry.localHeaderOffset());
+            long data = archive.dataOffset(entry);
+            assertTrue(data > SEGMENT_SIZE);
+            assertArrayEquals(content, archive.read(entry));
+
+            // A slice stops at the end of its segment, the next one carries on from there
+            ByteBuffer first = archive.slice(SEGMENT_SIZE - 10, 100);
+            assertEquals(10, first.remaining());
+            assertEquals(100, archive.slice(SEGMENT_SIZE, 100).remaining());
+
+            Path copy = dir.resolve("copy.bin");
+            try (FileChannel target = FileChannel.open(copy, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                archive.transferTo(data, content.length, target);
+            }
+            assertArrayEquals(content, Files.readAllBytes(copy));
+        }
+    }
+
+    @Test
+    void rejectsCorruptedContent() throws IOException {
+        byte[] content = randomBytes(5000, 4);
+        Path file = dir.resolve("corrupted.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            zip.putNextEntry(storedEntry("stored.bin", content));
+            zip.write(content);
+        }
+        long data;
+        try (ZipArchive archive = ZipArchive.open(file)) {
+            data = archive.dataOffset(archive.entry("stored.bin"));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~content[100]}), data + 100);
+        }
+
+        try (ZipArchive archive = ZipArchive.open(file)) {
+            assertThrows(IOException.class, () -> archive.read(archive.entry("stored.bin")));
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotZips() throws IOException {
+        Path file = dir.resolve("random.bin");
+        Files.write(file, randomBytes(1000, 5));
+        assertThrows(IOException.class, () -> ZipArchive.open(file).close());
+
+        Path empty = Files.createFile(dir.resolve("empty.zip"));
+        assertThrows(IOException.class, () -> ZipArchive.open(empty).close());
+    }
+
+    private static ZipEntry storedEntry(String name, byte[] content) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc(content));
+        return entry;
+    }
+
+    /**
+     * Writes a stored entry's local header and content.
+     *
+     * @return The position right after the content.
+     */
+    private static long writeLocalEntry(FileChannel channel, long position, String name, byte[] content) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = buffer(30 + nameBytes.length)
+                .putInt(0x04034b50)
+                .putShort((short) 20)
+                .putShort((short) 0)
+                .putShort((short) ZipArchive.STORED)
+                .putInt(0)
+                .putInt((int) crc(content))
+                .putInt(content.length)
+                .putInt(content.length)
+                .putShort((short) nameBytes.length)
+                .putShort((short) 0)
+                .put(nameBytes)
+                .flip();
+        writeFully(channel, header, position);
+        writeFully(channel, ByteBuffer.wrap(content), position + header.capacity());
+        return position + header.capacity() + content.length;
+    }
+
+    /**
+     * Builds the central directory header of a stored entry. With zip64, its sizes and offset are
+     * only recorded in a ZIP64 extra field, as writers do once they overflow 32 bits.
+     */
+    private static ByteBuffer centralHeader(String name, byte[] content, long localHeader, boolean zip64) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int extraLength = zip64 ? 4 + 24 : 0;
+        ByteBuffer header = buffer(46 + nameBytes.length + extraLength)
+                .putInt(0x02014b50)
+                .putShort((short) 45)
+                .putShort((short) 45)
+                .putShort((short) 0)
+                .putShort((short) ZipArchive.STORED)
+                .putInt(0)
+                .putInt((int) crc(content))
+                .putInt(zip64 ? 0xFFFFFFFF : content.length)
+                .putInt(zip64 ? 0xFFFFFFFF : content.length)
+                .putShort((short) nameBytes.length)
+                .putShort((short) extraLength)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putInt(0)
+                .putInt(zip64 ? 0xFFFFFFFF : (int) localHeader)
+                .put(nameBytes);
+        if (zip64) {
+            header.putShort((short) 0x0001)
+                    .putShort((short) 24)
+                    .putLong(content.length)
+                    .putLong(content.length)
+                    .putLong(localHeader);
+        }
+        return header.flip();
+    }
+
+    private static void writeEndRecords(FileChannel channel, long position, long directory, long directorySize, int count,
+                                        boolean zip64) throws IOException {
+        if (zip64) {
+            ByteBuffer record = buffer(56 + 20)
+                    .putInt(0x06064b50)
+                    .putLong(44)
+                    .putShort((short) 45)
+                    .putShort((short) 45)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(count)
+                    .putLong(count)
+                    .putLong(directorySize)
+                    .putLong(directory)
+                    // Locator
+                    .putInt(0x07064b50)
+                    .putInt(0)
+                    .putLong(position)
+                    .putInt(1)
+                    .flip();
+            writeFully(channel, record, position);
+            position += record.capacity();
+        }
+        ByteBuffer end = buffer(22)
+                .putInt(0x06054b50)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) (zip64 ? 0xFFFF : count))
+                .putShort((short) (zip64 ? 0xFFFF : count))
+                .putInt((int) directorySize)
+                .putInt(zip64 ? 0xFFFFFFFF : (int) directory)
+                .putShort((short) 0)
+                .flip();
+        writeFully(channel, end, position);
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}